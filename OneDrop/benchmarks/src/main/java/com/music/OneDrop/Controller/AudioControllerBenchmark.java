@@ -0,0 +1,144 @@
+package com.music.OneDrop.Controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.OneDrop.OneDropApplication;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.Service.WavFixtures;
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoints de lecture de la bibliothèque, appelés sur le vrai contexte Spring (sans serveur HTTP) :
+ * GET /api/audio/videos (requête triée sur une base H2 peuplée + sérialisation JSON)
+ * et GET /api/audio/serve/track (résolution du fichier + lecture complète d'une piste WAV générée).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+public class AudioControllerBenchmark {
+
+    private static final String TRACK_VIDEO_ID = "bench-track";
+
+    @Param({"200", "2000"})
+    public int libraryVideos;
+
+    private Path home;
+    private ConfigurableApplicationContext context;
+    private AudioController controller;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void startContext() throws IOException {
+        // Les chemins (~/OneDrop/tracks, sources...) sont calculés depuis user.home au chargement des classes
+        home = Files.createTempDirectory("onedrop-bench-home");
+        System.setProperty("user.home", home.toString());
+        Path trackFolder = Files.createDirectories(home.resolve("OneDrop").resolve("tracks").resolve(TRACK_VIDEO_ID));
+        // 3 min stéréo 16 bits : ~32 Mo, la taille d'une vraie piste séparée
+        WavFixtures.write(trackFolder.resolve("vocals.wav"), 180, 16, 1.0);
+
+        // Arguments de ligne de commande : ils priment sur application.properties, contrairement à properties()
+        context = new SpringApplicationBuilder(OneDropApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:onedrop-bench;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--youtube.search.prefetch.enabled=false",
+                        "--onedrop.speculative.enabled=false",
+                        "--logging.level.root=WARN");
+        controller = context.getBean(AudioController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        VideoRepository videoRepository = context.getBean(VideoRepository.class);
+        awaitReconciliation(videoRepository);
+        seedLibrary(videoRepository);
+    }
+
+    /**
+     * La réconciliation de démarrage (asynchrone) adopte le dossier de la piste générée : on attend qu'elle
+     * ait écrit son entrée, sinon notre insertion et la sienne se disputent la même clé.
+     */
+    private static void awaitReconciliation(VideoRepository videoRepository) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!videoRepository.existsById(TRACK_VIDEO_ID)) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Startup reconciliation did not adopt " + TRACK_VIDEO_ID);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void seedLibrary(VideoRepository videoRepository) {
+        List<VideoEntry> entries = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < libraryVideos; i++) {
+            VideoEntry entry = new VideoEntry();
+            entry.setVideoId(i == 0 ? TRACK_VIDEO_ID : String.format("vid%08d", i));
+            entry.setVideoTitle("Artist " + (i % 97) + " - Song " + i);
+            entry.setDuration("PT3M" + (i % 60) + "S");
+            // Un sur dix en échec : filtré par l'endpoint
+            entry.setStatus(i % 10 == 9 ? Status.FAILED.name() : Status.COMPLETED.name());
+            entry.setProcessedAt(now.minusMinutes(i));
+            entry.setStemsJson("{\"vocals\":{\"durationSeconds\":190.2,\"peakDb\":-1.2,\"rmsDb\":-18.4,\"lufs\":-14.1,\"bpm\":120.0},"
+                    + "\"accompaniment\":{\"durationSeconds\":190.2,\"peakDb\":-0.8,\"rmsDb\":-16.9,\"lufs\":-12.7,\"bpm\":120.0}}");
+            entries.add(entry);
+        }
+        videoRepository.saveAll(entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() throws IOException {
+        context.close();
+        WavFixtures.deleteTree(home);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public byte[] listVideos() throws IOException {
+        ResponseEntity<List<VideoEntry>> response = controller.getProcessedVideos();
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long serveTrack() throws IOException {
+        ResponseEntity<Resource> response = controller.serveTrack(TRACK_VIDEO_ID, "vocals", null);
+        try (InputStream in = response.getBody().getInputStream()) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskStatusManager sous contention : le polling /status (lectures) pendant que les traitements
+ * publient leurs étapes (écritures), et hasActiveTask, qui parcourt toutes les tâches connues.
+ */
+@State(Scope.Group)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskStatusManagerBenchmark {
+
+    private static final Status[] ACTIVE_STEPS = {Status.PENDING, Status.DOWNLOADING, Status.SEPARATING, Status.COMPLETED};
+
+    @Param({"100", "10000"})
+    public int knownTasks;
+
+    private TaskStatusManager manager;
+    private String[] videoIds;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        // updateStatus journalise chaque changement : sans cela on mesurerait la console
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        manager = new TaskStatusManager();
+        videoIds = new String[knownTasks];
+        for (int i = 0; i < knownTasks; i++) {
+            videoIds[i] = String.format("vid%08d", i);
+            manager.updateStatus(videoIds[i], Status.COMPLETED);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOut() {
+        System.setOut(originalOut);
+    }
+
+    private String randomVideoId() {
+        return videoIds[ThreadLocalRandom.current().nextInt(videoIds.length)];
+    }
+
+    @Benchmark
+    @Group("pollingWhileProcessing")
+    @GroupThreads(6)
+    public Status poll() {
+        return manager.getStatus(randomVideoId());
+    }
+
+    @Benchmark
+    @Group("pollingWhileProcessing")
+    @GroupThreads(2)
+    public void publishStep() {
+        manager.updateStatus(randomVideoId(), ACTIVE_STEPS[ThreadLocalRandom.current().nextInt(ACTIVE_STEPS.length)]);
+    }
+
+    @Benchmark
+    @Group("activeTaskCheck")
+    @GroupThreads(4)
+    public boolean hasActiveTask() {
+        return manager.hasActiveTask(randomVideoId());
+    }
+}
@@ -0,0 +1,84 @@
+package com.music.OneDrop.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.youtube.model.Thumbnail;
+import com.google.api.services.youtube.model.ThumbnailDetails;
+import com.google.api.services.youtube.model.Video;
+import com.google.api.services.youtube.model.VideoContentDetails;
+import com.google.api.services.youtube.model.VideoSnippet;
+import com.music.OneDrop.Dto.VideoDto;
+import com.music.OneDrop.Dto.VideoPageDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion des vidéos YouTube en VideoDto (mapToVideoDto) et sérialisation JSON d'une page de recherche,
+ * avec un ObjectMapper configuré comme celui de Spring Boot (dates java.time).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VideoDtoBenchmark {
+
+    // Taille d'une page de /search/youtube
+    private static final int PAGE_SIZE = 25;
+
+    private List<Video> videos;
+    private VideoPageDto page;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void buildPage() {
+        videos = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            videos.add(new Video()
+                    .setId(String.format("vid%08d", i))
+                    .setSnippet(new VideoSnippet()
+                            .setTitle("Artist " + i + " - Song title " + i + " (Official Music Video)")
+                            .setChannelTitle("Artist " + i + " Official")
+                            .setPublishedAt(new DateTime("2021-06-1" + (i % 10) + "T12:34:56Z"))
+                            .setThumbnails(new ThumbnailDetails()
+                                    .setDefault(new Thumbnail().setUrl("https://i.ytimg.com/vi/vid" + i + "/default.jpg"))))
+                    .setContentDetails(new VideoContentDetails().setDuration("PT3M" + (10 + i) + "S")));
+        }
+        List<VideoDto> items = new ArrayList<>();
+        for (Video video : videos) {
+            items.add(YoutubeService.mapToVideoDto(video));
+        }
+        page = new VideoPageDto(items, "CBkQAA");
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public List<VideoDto> mapSearchPage() {
+        List<VideoDto> items = new ArrayList<>(videos.size());
+        for (Video video : videos) {
+            items.add(YoutubeService.mapToVideoDto(video));
+        }
+        return items;
+    }
+
+    @Benchmark
+    public byte[] serializeSearchPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page.getItems());
+    }
+}
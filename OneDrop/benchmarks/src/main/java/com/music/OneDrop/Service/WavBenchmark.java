@@ -0,0 +1,101 @@
+package com.music.OneDrop.Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * En-têtes WAV, découpe PCM (une fenêtre d'une seconde décodée en échantillons) et mix de pistes (StemMixer).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WavBenchmark {
+
+    @Param({"16", "24"})
+    public int bitsPerSample;
+
+    private Path directory;
+    private Path vocals;
+    private Path drums;
+    private Path bass;
+    private Path mixOutput;
+    private WavHeader header;
+
+    @Setup(Level.Trial)
+    public void createFixtures() throws IOException {
+        directory = Files.createTempDirectory("onedrop-bench-wav");
+        // 30 s par piste : le mix de trois pistes lit ~16 Mo en 16 bits
+        vocals = WavFixtures.write(directory.resolve("vocals.wav"), 30, bitsPerSample, 1.0);
+        drums = WavFixtures.write(directory.resolve("drums.wav"), 30, bitsPerSample, 1.5);
+        bass = WavFixtures.write(directory.resolve("bass.wav"), 30, bitsPerSample, 0.5);
+        mixOutput = directory.resolve("accompaniment.wav");
+        header = WavHeader.read(vocals);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFixtures() throws IOException {
+        WavFixtures.deleteTree(directory);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public WavHeader parseHeader() throws IOException {
+        return WavHeader.read(vocals);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void sliceOneSecond(Blackhole blackhole) throws IOException {
+        long startFrame = ThreadLocalRandom.current().nextLong(header.getFrameCount() - WavFixtures.SAMPLE_RATE);
+        ByteBuffer window = ByteBuffer.allocate(WavFixtures.SAMPLE_RATE * header.getBlockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(vocals, StandardOpenOption.READ)) {
+            long position = header.getDataOffset() + startFrame * header.getBlockAlign();
+            while (window.hasRemaining()) {
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        }
+        window.flip();
+        double peak = 0;
+        while (window.remaining() >= header.getBytesPerSample()) {
+            peak = Math.max(peak, Math.abs(header.readSample(window)));
+        }
+        blackhole.consume(peak);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void mixThreeStems() throws IOException {
+        StemMixer.mix(List.of(vocals, drums, bass), mixOutput);
+    }
+}
@@ -0,0 +1,74 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Fichiers WAV générés pour les benchmarks : accord de sinusoïdes (déterministe), pas de fichier binaire dans le dépôt.
+ */
+public final class WavFixtures {
+
+    public static final int SAMPLE_RATE = 44_100;
+    public static final int CHANNELS = 2;
+
+    private static final int FRAMES_PER_BLOCK = 4096;
+
+    private WavFixtures() {
+    }
+
+    /**
+     * Écrit un WAV PCM canonique de 'seconds' secondes (stéréo, 44,1 kHz) ; 'pitch' décale l'accord d'un fichier à l'autre.
+     */
+    public static Path write(Path file, int seconds, int bitsPerSample, double pitch) throws IOException {
+        long frames = (long) seconds * SAMPLE_RATE;
+        WavHeader header = new WavHeader(WavHeader.FORMAT_PCM, CHANNELS, SAMPLE_RATE, bitsPerSample,
+                WavHeader.CANONICAL_HEADER_SIZE, frames * CHANNELS * (bitsPerSample / 8));
+        ByteBuffer block = ByteBuffer.allocate(FRAMES_PER_BLOCK * header.getBlockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header.toCanonicalHeader());
+            for (long frame = 0; frame < frames; frame++) {
+                double t = (double) frame / SAMPLE_RATE;
+                double sample = 0.3 * Math.sin(2 * Math.PI * 220 * pitch * t)
+                        + 0.2 * Math.sin(2 * Math.PI * 277.18 * pitch * t)
+                        + 0.1 * Math.sin(2 * Math.PI * 329.63 * pitch * t);
+                for (int channel = 0; channel < CHANNELS; channel++) {
+                    header.writeSample(block, sample);
+                }
+                if (!block.hasRemaining()) {
+                    writeFully(out, block.flip());
+                    block.clear();
+                }
+            }
+            writeFully(out, block.flip());
+        }
+        return file;
+    }
+
+    /**
+     * Supprime un dossier temporaire de benchmark et son contenu.
+     */
+    public static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
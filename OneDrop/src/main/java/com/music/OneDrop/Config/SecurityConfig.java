@@ -20,6 +20,8 @@ public class SecurityConfig {
         
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        // Curseur de pagination de /search/youtube et statut du cache catalogue Spotify, lisibles par le front-end
+        config.setExposedHeaders(Arrays.asList("X-Next-Page-Token", "X-Cache"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
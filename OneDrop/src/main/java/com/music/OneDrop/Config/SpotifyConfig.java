@@ -0,0 +1,30 @@
+package com.music.OneDrop.Config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class SpotifyConfig {
+
+    @Value("${spotify.http.connect-timeout-ms:3000}")
+    private long connectTimeoutMs;
+
+    /**
+     * Single shared client for every Spotify proxy call.
+     * The JDK client pools and reuses connections on its own and negotiates HTTP/2 with api.spotify.com,
+     * so concurrent requests are multiplexed over a few connections instead of opening one per call.
+     * Calls are non-blocking (sendAsync): no servlet thread waits on Spotify.
+     */
+    @Bean
+    public HttpClient spotifyHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+}
@@ -1,21 +1,78 @@
 package com.music.OneDrop.Config;
 
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.youtube.YouTube;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class YoutubeConfig {
 
+    @Value("${youtube.http.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${youtube.http.connect-timeout-ms:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${youtube.http.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    @Value("${youtube.http.idle-timeout-seconds:30}")
+    private long idleTimeoutSeconds;
+
+    /**
+     * Transport Apache avec pool de connexions keep-alive : les appels concurrents réutilisent
+     * les connexions TLS déjà ouvertes vers googleapis.com au lieu d'en rouvrir une à chaque requête.
+     * Le shutdown (fermeture du pool) est appelé par Spring à l'arrêt.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public HttpTransport youtubeHttpTransport() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(5, TimeUnit.MINUTES);
+        // Un seul hôte cible : tout le pool lui est ouvert
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                // Pool saturé : on échoue vite plutôt que d'empiler les requêtes
+                .setConnectionRequestTimeout(connectTimeoutMs)
+                .build();
+
+        return new ApacheHttpTransport(HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutSeconds, TimeUnit.SECONDS)
+                // Redirections, nouvelles tentatives et gzip sont gérés par google-http-client
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .disableContentCompression()
+                .build());
+    }
+
     @Bean
-    public YouTube youTube() {
+    public YouTube youTube(HttpTransport youtubeHttpTransport) {
         // Initialiser le client YouTube API
         return new YouTube.Builder(
-                new NetHttpTransport(), // Pour la gestion des requêtes HTTP
+                youtubeHttpTransport, // Pour la gestion des requêtes HTTP (pool de connexions)
                 JacksonFactory.getDefaultInstance(), // Pour la désérialisation JSON
-                request -> {} // Ne pas ajouter de Credential pour une simple clé API
-        ).setApplicationName("OneDrop").build();
+                request -> {
+                    // Pas de Credential pour une simple clé API, seulement des délais bornés
+                    request.setConnectTimeout(connectTimeoutMs);
+                    request.setReadTimeout(readTimeoutMs);
+                }
+        // "(gzip)" dans le User-Agent : condition posée par les API Google pour compresser les réponses
+        ).setApplicationName("OneDrop (gzip)").build();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,17 @@
 package com.music.OneDrop.Controller;
 
+import com.music.OneDrop.Service.AlbumImportService;
 import com.music.OneDrop.Service.AudioProcessorService;
+import com.music.OneDrop.Service.CpuGovernor;
+import com.music.OneDrop.Service.LibrarySearchIndex;
+import com.music.OneDrop.Service.SeparationJobQueue;
+import com.music.OneDrop.Service.SpeculativeDownloadService;
+import com.music.OneDrop.Service.SpotifyService;
+import com.music.OneDrop.Service.StemModel;
+import com.music.OneDrop.Service.StorageQuotaManager;
+import com.music.OneDrop.Service.VirtualThreadMonitor;
+import com.music.OneDrop.Service.YoutubeService;
+import com.music.OneDrop.Dto.VideoDto;
 import com.music.OneDrop.Service.TaskStatusManager;
 import com.music.OneDrop.repository.VideoRepository;
 import com.music.OneDrop.Service.TaskStatusManager.Status;
@@ -17,28 +28,41 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 @CrossOrigin(origins = "http://localhost:5000")
 @RestController
 @RequestMapping("/api/audio")
 public class AudioController {
 
-    private final AudioProcessorService audioProcessorService;
+    private final SeparationJobQueue jobQueue;
     private final TaskStatusManager statusManager;
     private final VideoRepository videoRepository;
+    private final LibrarySearchIndex searchIndex;
+    private final StorageQuotaManager storageQuotaManager;
+    private final YoutubeService youtubeService;
+    private final SpeculativeDownloadService speculativeDownloads;
+    private final AlbumImportService albumImportService;
+    private final VirtualThreadMonitor virtualThreadMonitor;
+    private final CpuGovernor cpuGovernor;
     
     // --- Chemins (Basés sur la configuration de AudioProcessorService) ---
-    private static final String APP_NAME_FOLDER = "OneDrop"; // NOTE: Utilisé dans le service
-    private static final Path PERMANENT_TRACKS_DIR = 
-        Paths.get(System.getProperty("user.home"), APP_NAME_FOLDER, "tracks");
+    private static final Path PERMANENT_TRACKS_DIR = AudioProcessorService.PERMANENT_TRACKS_DIR;
     
     // Injection du service et du gestionnaire de statut
-    public AudioController(AudioProcessorService audioProcessorService, TaskStatusManager statusManager, VideoRepository videoRepository) {
-        this.audioProcessorService = audioProcessorService;
+    public AudioController(SeparationJobQueue jobQueue, TaskStatusManager statusManager, VideoRepository videoRepository, LibrarySearchIndex searchIndex, StorageQuotaManager storageQuotaManager, YoutubeService youtubeService, SpeculativeDownloadService speculativeDownloads, AlbumImportService albumImportService, VirtualThreadMonitor virtualThreadMonitor, CpuGovernor cpuGovernor) {
+        this.jobQueue = jobQueue;
         this.statusManager = statusManager;
         this.videoRepository = videoRepository;
+        this.searchIndex = searchIndex;
+        this.storageQuotaManager = storageQuotaManager;
+        this.youtubeService = youtubeService;
+        this.speculativeDownloads = speculativeDownloads;
+        this.albumImportService = albumImportService;
+        this.virtualThreadMonitor = virtualThreadMonitor;
+        this.cpuGovernor = cpuGovernor;
     }
 
     // ----------------------------------------------------------------------
@@ -47,7 +71,8 @@ public class AudioController {
     
     /**
      * Déclenche le téléchargement et la séparation audio de manière ASYNCHRONE.
-     * Prend le videoId, le titre et la durée dans le corps de la requête (JSON).
+     * Prend le videoId dans le corps de la requête (JSON) ; le titre et la durée sont optionnels
+     * et, s'ils manquent, sont repris de l'entrée existante, ou du cache des détails YouTube pour une vidéo inconnue.
      * Retourne immédiatement 202 Accepted.
      */
     @PostMapping("/process")
@@ -55,61 +80,140 @@ public class AudioController {
         
         String videoId = requestDTO.getVideoId();
         
-        if (videoId == null || videoId.isEmpty() || requestDTO.getVideoTitle() == null) {
-            return new ResponseEntity<>("Missing videoId or videoTitle in request body.", HttpStatus.BAD_REQUEST);
+        if (videoId == null || videoId.isEmpty()) {
+            return new ResponseEntity<>("Missing videoId in request body.", HttpStatus.BAD_REQUEST);
         }
 
-        Status currentStatus = statusManager.getStatus(videoId);
-        
-        // Empêcher de relancer une tâche déjà en cours
-        if (currentStatus != null && currentStatus != Status.FAILED && currentStatus != Status.COMPLETED) {
-            return new ResponseEntity<>("Task for videoId " + videoId + " is already in progress: " + currentStatus, HttpStatus.ACCEPTED);
+        StemModel model;
+        try {
+            model = StemModel.fromName(requestDTO.getModel());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
 
-        try {
-            // -------------------------------------------------------------------
-            // NOUVEAU : ENREGISTRER/METTRE À JOUR DANS LA BASE DE DONNÉES H2
-            // -------------------------------------------------------------------
-            
-            Optional<VideoEntry> existingEntry = videoRepository.findById(videoId);
-            VideoEntry entryToSave;
-
-            if (existingEntry.isPresent()) {
-                // Si la vidéo existe (relance ou mise à jour)
-                entryToSave = existingEntry.get();
-                entryToSave.setStatus(Status.PENDING.name()); // Réinitialiser le statut
-                entryToSave.setVideoTitle(requestDTO.getVideoTitle()); 
-                entryToSave.setDuration(requestDTO.getDuration()); 
-                entryToSave.setProcessedAt(null); // Effacer la date de complétion pour un nouveau run
-                // NOTE: Laisser entryToSave.setStemsJson() inchangé ou NULL si on le gère dans le service
+        if (requestDTO.getVideoTitle() == null || requestDTO.getDuration() == null) {
+            // Vidéo déjà connue (relance, autre modèle) : titre et durée viennent de son entrée, sans quota YouTube
+            Optional<VideoEntry> knownEntry = videoRepository.findById(videoId);
+            if (knownEntry.isPresent()) {
+                if (requestDTO.getVideoTitle() == null) {
+                    requestDTO.setVideoTitle(knownEntry.get().getVideoTitle());
+                }
+                if (requestDTO.getDuration() == null) {
+                    requestDTO.setDuration(knownEntry.get().getDuration());
+                }
             } else {
-                // Si c'est un nouveau traitement, créer une nouvelle entrée
-                entryToSave = new VideoEntry();
-                entryToSave.setVideoId(videoId);
-                entryToSave.setVideoTitle(requestDTO.getVideoTitle());
-                entryToSave.setDuration(requestDTO.getDuration());
-                entryToSave.setStatus(Status.PENDING.name());
-                entryToSave.setProcessedAt(null); 
-                // RETIRÉ : entryToSave.setStemsJson(null); -> Géré par la valeur par défaut DB/Entité
+                try {
+                    Optional<VideoDto> details = youtubeService.getVideoDetails(videoId);
+                    if (details.isPresent()) {
+                        if (requestDTO.getVideoTitle() == null) {
+                            requestDTO.setVideoTitle(details.get().getTitle());
+                        }
+                        if (requestDTO.getDuration() == null) {
+                            requestDTO.setDuration(details.get().getDuration());
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("YouTube details lookup failed for " + videoId + ": " + e.getMessage());
+                }
             }
-            
-            videoRepository.save(entryToSave); // Sauvegarde/Mise à jour dans H2
+            if (requestDTO.getVideoTitle() == null) {
+                return new ResponseEntity<>("Missing videoTitle and no YouTube details found for videoId: " + videoId, HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        // Empêcher de relancer une tâche déjà en cours (tous modèles confondus : ils partagent le dossier de pistes)
+        if (statusManager.hasActiveTask(videoId)) {
+            return new ResponseEntity<>("Task for videoId " + videoId + " is already in progress: " + statusManager.getStatus(model.jobKey(videoId)), HttpStatus.ACCEPTED);
+        }
 
-            // Lancement de la méthode asynchrone : le thread HTTP est libéré immédiatement.
-            audioProcessorService.startAudioProcessing(videoId);
+        try {
+            // Vérification et déclaration atomiques, enregistrement dans H2 puis lancement asynchrone
+            // (pipeline local ou file des workers) : le thread HTTP est libéré immédiatement.
+            if (!jobQueue.startJob(videoId, requestDTO.getVideoTitle(), requestDTO.getDuration(), model)) {
+                return new ResponseEntity<>("Task for videoId " + videoId + " is already in progress: " + statusManager.getStatus(model.jobKey(videoId)), HttpStatus.ACCEPTED);
+            }
             
             // Retourne 202 Accepted pour indiquer au front-end que le travail a commencé en arrière-plan.
-            return new ResponseEntity<>("Processing started asynchronously for videoId: " + videoId, HttpStatus.ACCEPTED);
+            return new ResponseEntity<>("Processing started asynchronously for videoId: " + videoId + " (" + model.getName() + ")", HttpStatus.ACCEPTED);
             
         } catch (Exception e) {
             System.err.println("Error starting process for " + videoId + ": " + e.getMessage());
-            // En cas d'échec de lancement, mettre à jour le statut dans le manager
-            statusManager.updateStatus(videoId, Status.FAILED);
-            // NOTE: Une mise à jour de la DB ici serait aussi nécessaire en cas d'échec critique avant le lancement du service.
+            // Le statut FAILED de la tâche a été posé par startJob
             return new ResponseEntity<>("Internal server error when trying to start process. " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Indice envoyé par le front-end quand la page d'une vidéo est ouverte : si le mode spéculatif
+     * est actif, l'audio source est pré-téléchargé en basse priorité pour un futur POST /process.
+     * Retourne 202 si le pré-téléchargement est mis en file, 204 sinon (désactivé, déjà en cache ou traité).
+     */
+    @PostMapping("/prefetch")
+    public ResponseEntity<Void> prefetchSource(@RequestParam String videoId) {
+        return speculativeDownloads.suggest(videoId)
+            ? ResponseEntity.status(HttpStatus.ACCEPTED).build()
+            : ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/prefetch/stats")
+    public ResponseEntity<Map<String, Object>> prefetchStats() {
+        return ResponseEntity.ok(speculativeDownloads.getStats());
+    }
+
+    /**
+     * Mode d'exécution (threads virtuels ou non), threads de plate-forme, mémoire
+     * et sites d'épinglage des threads virtuels détectés par JFR.
+     */
+    @GetMapping("/threads/stats")
+    public ResponseEntity<Map<String, Object>> threadStats() {
+        return ResponseEntity.ok(virtualThreadMonitor.getStats());
+    }
+
+    /**
+     * Gouverneur CPU : séparations simultanées autorisées, threads par séparation
+     * et débit mesuré pour chaque borne essayée.
+     */
+    @GetMapping("/cpu/stats")
+    public ResponseEntity<Map<String, Object>> cpuStats() {
+        return ResponseEntity.ok(cpuGovernor.getStats());
+    }
+
+    /**
+     * Importe un album Spotify entier : chaque piste est associée à une vidéo YouTube (cache persistant,
+     * sinon recherche notée sur la durée et le titre), puis les vidéos trouvées sont traitées en un seul lot.
+     * Nécessite le jeton Spotify du front-end. Retourne 202 et l'état du travail (à suivre via GET /import/{jobId}),
+     * ou 200 avec le travail existant si cet album est déjà en cours d'import.
+     */
+    @PostMapping("/import/spotify-album/{albumId}")
+    public CompletableFuture<ResponseEntity<?>> importSpotifyAlbum(
+            @PathVariable String albumId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market,
+            @RequestParam(required = false) String model) {
+        StemModel stemModel;
+        try {
+            stemModel = StemModel.fromName(model);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+        }
+        return albumImportService.importAlbum(albumId, market, stemModel, authorizationHeader);
+    }
+
+    /**
+     * Progression agrégée d'un import d'album (correspondances et statut de traitement de chaque piste).
+     */
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<Map<String, Object>> getImportJob(@PathVariable String jobId) {
+        return albumImportService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<List<Map<String, Object>>> listImportJobs() {
+        return ResponseEntity.ok(albumImportService.listJobs());
+    }
+
     // ----------------------------------------------------------------------
     // 2. ENDPOINT POUR RÉCUPÉRER LE STATUT (GET /status?videoId=...)
     // ----------------------------------------------------------------------
@@ -119,8 +223,13 @@ public class AudioController {
      * Retourne le statut de la tâche (PENDING, SEPARATING, COMPLETED, etc.).
      */
     @GetMapping("/status")
-    public ResponseEntity<String> getStatus(@RequestParam String videoId) {
-        Status status = statusManager.getStatus(videoId);
+    public ResponseEntity<String> getStatus(@RequestParam String videoId, @RequestParam(required = false) String model) {
+        Status status;
+        try {
+            status = statusManager.getStatus(StemModel.fromName(model).jobKey(videoId));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
 
         if (status == null) {
             // Si la tâche n'a jamais été lancée ou a été effacée
@@ -138,6 +247,7 @@ public class AudioController {
     /**
      * Récupère toutes les entrées vidéo de la base de données (vidéos traitées ou en cours).
      * Les données sont triées par date de traitement (du plus récent au plus ancien).
+     * Les vidéos EVICTED sont incluses : leurs pistes sont re-séparées à la première lecture.
      */
     @GetMapping("/videos")
     public ResponseEntity<List<VideoEntry>> getProcessedVideos() {
@@ -145,10 +255,10 @@ public class AudioController {
             // Utilise la méthode personnalisée définie dans VideoRepository pour trier
             List<VideoEntry> videos = videoRepository.findAllByOrderByProcessedAtDesc();
             
-            // Filtrer les vidéos complétées (évite ConcurrentModificationException)
+            // Filtrer les vidéos complétées ou évincées (évite ConcurrentModificationException)
             List<VideoEntry> completedVideos = new java.util.ArrayList<>();
             for (VideoEntry video : videos) {
-                if (video.getStatus() != null && video.getStatus().equals("COMPLETED")) {
+                if (Status.COMPLETED.name().equals(video.getStatus()) || Status.EVICTED.name().equals(video.getStatus())) {
                     completedVideos.add(video);
                 }
             }
@@ -160,6 +270,35 @@ public class AudioController {
         }
     }
     
+    /**
+     * Recherche plein texte dans la bibliothèque (vidéos COMPLETED ou EVICTED) via l'index en mémoire.
+     * Les résultats sont triés par pertinence, puis par date de traitement.
+     */
+    @GetMapping("/videos/search")
+    public ResponseEntity<List<VideoEntry>> searchProcessedVideos(
+        @RequestParam String q,
+        @RequestParam(defaultValue = "20") int limit)
+    {
+        List<String> rankedIds = searchIndex.search(q, Math.min(limit, 100));
+        if (rankedIds.isEmpty()) {
+            return new ResponseEntity<>(List.of(), HttpStatus.OK);
+        }
+
+        // Recharger les entrées puis restaurer l'ordre de pertinence de l'index
+        java.util.Map<String, VideoEntry> byId = new java.util.HashMap<>();
+        for (VideoEntry entry : videoRepository.findAllById(rankedIds)) {
+            byId.put(entry.getVideoId(), entry);
+        }
+        List<VideoEntry> results = new java.util.ArrayList<>(rankedIds.size());
+        for (String id : rankedIds) {
+            VideoEntry entry = byId.get(id);
+            if (entry != null) {
+                results.add(entry);
+            }
+        }
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+    
     // ----------------------------------------------------------------------
     // 4. ENDPOINT POUR SERVIR LES PISTES AUDIO (GET /serve/track?videoId=...&trackName=...)
     // ----------------------------------------------------------------------
@@ -167,25 +306,41 @@ public class AudioController {
     @GetMapping("/serve/track")
     public ResponseEntity<Resource> serveTrack(
         @RequestParam String videoId, 
-        @RequestParam String trackName) 
+        @RequestParam String trackName,
+        @RequestParam(required = false) String model) 
     {
+        StemModel stemModel;
+        try {
+            stemModel = StemModel.fromName(model);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
         // Le fichier généré par notre service est toujours un .wav
         String fileName = trackName + ".wav"; 
         
-        // Construit le chemin : C:\Users\...\OneDrop\tracks\{videoId}\{trackName}.wav
-        Path filePath = PERMANENT_TRACKS_DIR
-            .resolve(videoId)
+        // Une vidéo dédupliquée pointe vers le dossier de la vidéo qui possède les pistes
+        String stemsFolderId = videoRepository.findById(videoId)
+            .map(VideoEntry::resolveStemsFolderId)
+            .orElse(videoId);
+
+        // Construit le chemin : C:\Users\...\OneDrop\tracks\{videoId}[\{modèle}]\{trackName}.wav
+        Path filePath = stemModel.folderIn(PERMANENT_TRACKS_DIR.resolve(stemsFolderId))
             .resolve(fileName);
 
         try {
             Resource resource = new UrlResource(filePath.toUri());
 
             if (resource.exists() && resource.isReadable()) {
+                storageQuotaManager.recordAccess(stemsFolderId);
                 return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
                     .contentType(MediaType.parseMediaType("audio/wav"))
                     .contentLength(resource.contentLength())
                     .body(resource);
+            } else if (resubmitIfEvicted(videoId)) {
+                // Pistes évincées par le quota : re-séparation lancée, le client réessaie plus tard
+                return ResponseEntity.status(HttpStatus.ACCEPTED).build();
             } else {
                 System.err.println("Fichier introuvable ou illisible : " + filePath);
                 return ResponseEntity.notFound().build();
@@ -196,4 +351,28 @@ public class AudioController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Relance la séparation d'une vidéo dont les pistes ont été évincées.
+     * @return true si l'entrée est EVICTED (re-séparation lancée ou déjà en cours).
+     */
+    private synchronized boolean resubmitIfEvicted(String videoId) {
+        Status currentStatus = statusManager.getStatus(videoId);
+        if (currentStatus == Status.PENDING || currentStatus == Status.DOWNLOADING || currentStatus == Status.SEPARATING) {
+            return true;
+        }
+        Optional<VideoEntry> optionalEntry = videoRepository.findById(videoId);
+        if (optionalEntry.isEmpty() || !Status.EVICTED.name().equals(optionalEntry.get().getStatus())) {
+            return false;
+        }
+        if (!storageQuotaManager.tryMarkStarted(videoId, StemModel.DEFAULT)) {
+            return true; // Un autre modèle est en cours de traitement dans ce dossier
+        }
+        VideoEntry entry = optionalEntry.get();
+        entry.setStatus(Status.PENDING.name());
+        videoRepository.save(entry);
+        jobQueue.submit(videoId, StemModel.DEFAULT);
+        System.out.println("Re-separation requested on demand for evicted video: " + videoId);
+        return true;
+    }
 }
@@ -5,11 +5,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.music.OneDrop.Service.SpotifyService;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class SpotifyController {
 
+    // Each album costs one upstream call: keep the overview fan-out bounded
+    private static final int MAX_OVERVIEW_ALBUMS = 20;
+
     @Autowired
     private SpotifyService spotifyService;
 
@@ -21,90 +29,99 @@ public class SpotifyController {
      * @return A ResponseEntity containing the Spotify API's status and JSON body.
      */
     @GetMapping("/spotify-search") // Maps the method to /api/spotify-search
-    public ResponseEntity<String> searchSpotify(
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> searchSpotify(
             @RequestParam String query,
             // Use required = false to handle the case where the header might be missing 
             // during initial setup/debug, then check for its presence manually.
-            @RequestHeader(name = "Authorization", required = false) String authorizationHeader) {
+            @RequestHeader(name = "Authorization", required = false) String authorizationHeader,
+            // gzip from Spotify is passed through as is when the browser accepts it
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
         // --- 1. Validation (Check for Token) ---
         if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
             // If the token is missing or malformed, return 401 explicitly.
             // This is crucial for the frontend's token refresh logic.
-            return ResponseEntity
+            return CompletableFuture.completedFuture(SpotifyService.streaming(ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
-                    .body("{\"error\": \"Missing or invalid Spotify Access Token in Authorization header.\"}");
+                    .body("{\"error\": \"Missing or invalid Spotify Access Token in Authorization header.\"}")));
         }
 
         // --- 2. Call Service Proxy ---
         try {
             // Forward the validated request to the service layer for the external HTTP call
-            ResponseEntity<String> response = spotifyService.searchSpotifyCatalog(query, authorizationHeader);
+            CompletableFuture<ResponseEntity<StreamingResponseBody>> response =
+                    spotifyService.searchSpotifyCatalog(query, authorizationHeader, acceptEncoding);
             
-            // The service handles passing back non-200 statuses (401, 404, etc.)
+            // The service handles passing back non-200 statuses (401, 404, etc.);
+            // the servlet thread is released until Spotify answers
             return response;
             
         } catch (Exception e) {
             // Catch unexpected runtime errors (e.g., service configuration failure)
             System.err.println("Unexpected error during Spotify search proxy: " + e.getMessage());
-            return ResponseEntity
+            return CompletableFuture.completedFuture(SpotifyService.streaming(ResponseEntity
                     .internalServerError()
-                    .body("{\"error\": \"Backend proxy failed due to internal error: " + e.getMessage() + "\"}");
+                    .body("{\"error\": \"Backend proxy failed due to internal error: " + e.getMessage() + "\"}")));
         }
     }
    @GetMapping("/profile")
-    public ResponseEntity<String> getUserProfile(
-        @RequestHeader("Authorization") String authorizationHeader) {
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getUserProfile(
+        @RequestHeader("Authorization") String authorizationHeader,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
     // Calls the new service method
-    return spotifyService.getUserProfile(authorizationHeader);
+    return spotifyService.getUserProfile(authorizationHeader, acceptEncoding);
     } 
       @GetMapping("/topArtists")
-    public ResponseEntity<String> getTopArtists(
-        @RequestHeader("Authorization") String authorizationHeader) {
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getTopArtists(
+        @RequestHeader("Authorization") String authorizationHeader,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
     // Calls the new service method
-    return spotifyService.getTopArtists(authorizationHeader);
+    return spotifyService.getTopArtists(authorizationHeader, acceptEncoding);
     } 
       @GetMapping("/followingArtists")
-    public ResponseEntity<String> getFollowing(
-        @RequestHeader("Authorization") String authorizationHeader) {
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getFollowing(
+        @RequestHeader("Authorization") String authorizationHeader,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
     // Calls the new service method
-    return spotifyService.getFollowing(authorizationHeader);
+    return spotifyService.getFollowing(authorizationHeader, acceptEncoding);
     } 
 
 
 
      @GetMapping("/artistsTopTracks") // Maps the method to /api/spotify-search
-    public ResponseEntity<String> artistsTopTracks(
+    public CompletableFuture<ResponseEntity<String>> artistsTopTracks(
             // Use required = false to handle the case where the header might be missing 
             // during initial setup/debug, then check for its presence manually.
-            @RequestHeader(name = "Authorization", required = false) String authorizationHeader,@RequestHeader(name="id") String id) {
+            @RequestHeader(name = "Authorization", required = false) String authorizationHeader,@RequestHeader(name="id") String id,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market) {
 
         // --- 1. Validation (Check for Token) ---
         if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
             // If the token is missing or malformed, return 401 explicitly.
             // This is crucial for the frontend's token refresh logic.
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
-                    .body("{\"error\": \"Missing or invalid Spotify Access Token in Authorization header.\"}");
+                    .body("{\"error\": \"Missing or invalid Spotify Access Token in Authorization header.\"}"));
         }
 
         // --- 2. Call Service Proxy ---
         try {
             // Forward the validated request to the service layer for the external HTTP call
-            ResponseEntity<String> response = spotifyService.getArtistTopTracks(id, authorizationHeader);
+            CompletableFuture<ResponseEntity<String>> response = spotifyService.getArtistTopTracks(id, market, authorizationHeader);
             
-            // The service handles passing back non-200 statuses (401, 404, etc.)
+            // The service handles passing back non-200 statuses (401, 404, etc.);
+            // the servlet thread is released until Spotify answers
             return response;
             
         } catch (Exception e) {
             // Catch unexpected runtime errors (e.g., service configuration failure)
             System.err.println("Unexpected error during Spotify search proxy: " + e.getMessage());
-            return ResponseEntity
+            return CompletableFuture.completedFuture(ResponseEntity
                     .internalServerError()
-                    .body("{\"error\": \"Backend proxy failed due to internal error: " + e.getMessage() + "\"}");
+                    .body("{\"error\": \"Backend proxy failed due to internal error: " + e.getMessage() + "\"}"));
         }
     }
  /**
@@ -116,15 +133,32 @@ public class SpotifyController {
      * @return ResponseEntity<String> contenant les données des albums ou une erreur.
      */
     @GetMapping("/artists/{artistId}/albums")
-    public ResponseEntity<String> getArtistAlbumsController(
+    public CompletableFuture<ResponseEntity<String>> getArtistAlbumsController(
             @PathVariable String artistId,
-            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market) {
         
         System.out.println("-> Contrôleur appelé: getArtistAlbumsController pour l'artiste ID: " + artistId);
 
         // Appelle la méthode de service mise à jour, utilisant la nouvelle signature.
-        return spotifyService.getArtistAlbums(artistId, authorizationHeader);
+        return spotifyService.getArtistAlbums(artistId, market, authorizationHeader);
     }
+
+    /**
+     * Discographie complète (all=true) : les pages suivantes sont demandées en parallèle
+     * et le résultat fusionné est envoyé au fur et à mesure, dans l'ordre des offsets.
+     * URL d'appel côté frontend: GET /api/spotify/artists/{artistId}/albums?all=true
+     */
+    @GetMapping(value = "/artists/{artistId}/albums", params = "all=true")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> getAllArtistAlbumsController(
+            @PathVariable String artistId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market) {
+
+        System.out.println("-> Contrôleur appelé: getAllArtistAlbumsController pour l'artiste ID: " + artistId);
+        return spotifyService.getAllArtistAlbums(artistId, market, authorizationHeader);
+    }
+
     /**
      * Endpoint pour récupérer les pistes (tracks) d'un album spécifique.
      * URL d'appel côté frontend: GET /api/spotify/albums/{albumId}/tracks
@@ -133,13 +167,59 @@ public class SpotifyController {
      * @return ResponseEntity<String> contenant les données des pistes ou une erreur.
      */
     @GetMapping("/albums/{albumId}/tracks")
-    public ResponseEntity<String> getAlbumTracksController(
+    public CompletableFuture<ResponseEntity<String>> getAlbumTracksController(
             @PathVariable String albumId,
-            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market) {
         
         System.out.println("-> Contrôleur appelé: getAlbumTracksController pour l'album ID: " + albumId);
 
         // Appelle la méthode de service nouvellement créée.
-        return spotifyService.getAlbumTracks(albumId, authorizationHeader);
+        return spotifyService.getAlbumTracks(albumId, market, authorizationHeader);
+    }
+
+    /**
+     * Toutes les pistes d'un album (all=true), même au-delà de 50 : même principe que les albums.
+     * URL d'appel côté frontend: GET /api/spotify/albums/{albumId}/tracks?all=true
+     */
+    @GetMapping(value = "/albums/{albumId}/tracks", params = "all=true")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> getAllAlbumTracksController(
+            @PathVariable String albumId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market) {
+
+        System.out.println("-> Contrôleur appelé: getAllAlbumTracksController pour l'album ID: " + albumId);
+        return spotifyService.getAllAlbumTracks(albumId, market, authorizationHeader);
+    }
+
+    /**
+     * Hit-rate metrics of the shared catalog cache (top tracks, albums, album tracks).
+     */
+    @GetMapping("/spotify/cache/stats")
+    public ResponseEntity<Map<String, Object>> catalogCacheStats() {
+        return ResponseEntity.ok(spotifyService.getCatalogCacheStats());
+    }
+
+    /**
+     * Rate-limit metrics: 429s received, retries, requests held or refused and time spent held.
+     */
+    @GetMapping("/spotify/throttle/stats")
+    public ResponseEntity<Map<String, Object>> throttleStats() {
+        return ResponseEntity.ok(spotifyService.getThrottleStats());
+    }
+
+    /**
+     * Aggregated artist page: top tracks, albums and the tracks of the first albums in one response,
+     * fetched upstream in parallel. A failing part is listed under "errors" instead of failing the page.
+     * URL d'appel côté frontend: GET /api/spotify/artists/{artistId}/overview?albums=5
+     */
+    @GetMapping("/artists/{artistId}/overview")
+    public CompletableFuture<ResponseEntity<String>> getArtistOverviewController(
+            @PathVariable String artistId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader,
+            @RequestParam(defaultValue = SpotifyService.DEFAULT_MARKET) String market,
+            @RequestParam(defaultValue = "5") int albums) {
+
+        return spotifyService.getArtistOverview(artistId, market, Math.max(0, Math.min(albums, MAX_OVERVIEW_ALBUMS)), authorizationHeader);
     }
-}
\ No newline at end of file
+}
@@ -1,33 +1,97 @@
 package com.music.OneDrop.Controller; // Assurez-vous d'utiliser le bon package
 
+import com.music.OneDrop.Service.QuotaExceededException;
+import com.music.OneDrop.Service.SpeculativeDownloadService;
 import com.music.OneDrop.Service.YoutubeService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import com.music.OneDrop.Dto.BatchSearchRequestDto;
+import com.music.OneDrop.Dto.BatchSearchResultDto;
 import com.music.OneDrop.Dto.VideoDto;
+import com.music.OneDrop.Dto.VideoPageDto;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 public class YoutubeController {
 
     private final YoutubeService youtubeService;
+    private final SpeculativeDownloadService speculativeDownloads;
 
-    public YoutubeController(YoutubeService youtubeService) {
+    public YoutubeController(YoutubeService youtubeService, SpeculativeDownloadService speculativeDownloads) {
         this.youtubeService = youtubeService;
+        this.speculativeDownloads = speculativeDownloads;
     }
 
+    // Curseur de la page suivante, renvoyé en en-tête pour garder le corps (liste de vidéos) inchangé
+    public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
+    // Une recherche coûte 100 unités de quota : un lot plus grand viderait le budget journalier d'un coup
+    private static final int MAX_BATCH_QUERIES = 25;
+
+    /**
+     * Recherche paginée : le client repasse la valeur de l'en-tête X-Next-Page-Token
+     * dans 'pageToken' pour obtenir la page suivante (préchargée en arrière-plan).
+     */
     @GetMapping("/search/youtube")
-    public ResponseEntity<List<VideoDto>> search(@RequestParam String q) {
+    public ResponseEntity<List<VideoDto>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(defaultValue = "5") long maxResults) {
         try {
             // Appeler la nouvelle méthode qui gère les deux requêtes API
-            List<VideoDto> videos = youtubeService.searchVideosWithDetails(q, 5L);
-            return ResponseEntity.ok(videos);
+            VideoPageDto page = youtubeService.searchPage(q, pageToken, Math.max(1, Math.min(maxResults, 50)));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextPageToken() != null) {
+                response.header(NEXT_PAGE_TOKEN_HEADER, page.getNextPageToken());
+            }
+            // Mode spéculatif : les premiers résultats de la première page sont les plus souvent traités
+            if (pageToken == null) {
+                speculativeDownloads.suggest(page.getItems());
+            }
+            return response.body(page.getItems());
+        } catch (QuotaExceededException e) {
+            // Quota épuisé et aucune page en cache : le client peut réessayer plus tard
+            System.err.println("YouTube search rejected: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(null);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body(null);
         }
     }
+
+    /**
+     * Recherche groupée ("trouver ces morceaux") : les requêtes sont exécutées en parallèle
+     * et chaque résultat indique ses vidéos ou son erreur.
+     */
+    @PostMapping("/search/youtube/batch")
+    public ResponseEntity<List<BatchSearchResultDto>> searchBatch(@RequestBody BatchSearchRequestDto request) {
+        List<String> queries = request.getQueries() == null ? List.of() : request.getQueries().stream()
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(query -> !query.isEmpty())
+                .collect(Collectors.toList());
+        if (queries.isEmpty() || queries.size() > MAX_BATCH_QUERIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        long maxResults = request.getMaxResults() == null ? 5 : Math.max(1, Math.min(request.getMaxResults(), 50));
+        return ResponseEntity.ok(youtubeService.searchBatch(queries, maxResults));
+    }
+
+    @GetMapping("/search/youtube/stats")
+    public ResponseEntity<Map<String, Object>> searchStats() {
+        return ResponseEntity.ok(youtubeService.getSearchCacheStats());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.music.OneDrop.Dto;
+
+import java.util.List;
+
+/**
+ * Corps de POST /search/youtube/batch : plusieurs recherches lancées en parallèle.
+ */
+public class BatchSearchRequestDto {
+    private List<String> queries;
+    private Long maxResults; // Optionnel, 5 par défaut (comme la recherche simple)
+
+    public BatchSearchRequestDto() {}
+
+    public List<String> getQueries() { return queries; }
+    public void setQueries(List<String> queries) { this.queries = queries; }
+    public Long getMaxResults() { return maxResults; }
+    public void setMaxResults(Long maxResults) { this.maxResults = maxResults; }
+}
@@ -0,0 +1,36 @@
+package com.music.OneDrop.Dto;
+
+import java.util.List;
+
+/**
+ * Résultat d'une requête d'un lot : les vidéos trouvées, ou un code d'erreur propre à cette requête
+ * ("quota_exceeded", "error") sans faire échouer le reste du lot.
+ */
+public class BatchSearchResultDto {
+    private String query;
+    private List<VideoDto> items;
+    private String error;
+    // Pour "quota_exceeded" : délai avant que le limiteur accepte à nouveau la requête
+    private Long retryAfterSeconds;
+    // Quota épuisé en cours de route : liste partielle ou détails expirés
+    private boolean degraded;
+
+    public BatchSearchResultDto() {}
+
+    public BatchSearchResultDto(String query, List<VideoDto> items, String error) {
+        this.query = query;
+        this.items = items;
+        this.error = error;
+    }
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+    public List<VideoDto> getItems() { return items; }
+    public void setItems(List<VideoDto> items) { this.items = items; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public Long getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(Long retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    public boolean isDegraded() { return degraded; }
+    public void setDegraded(boolean degraded) { this.degraded = degraded; }
+}
@@ -3,8 +3,10 @@ package com.music.OneDrop.Dto;
  public class ProcessRequestDTO {
     
     private String videoId;
+    // Optionnels : complétés côté serveur depuis le cache des détails YouTube s'ils sont absents
     private String videoTitle;
     private String duration; // Durée au format ISO 8601 (PT...S)
+    private String model; // Optionnel : "2stems" (défaut), "4stems" ou "5stems"
     
     // Constructeur par défaut requis par Jackson (Spring)
     public ProcessRequestDTO() {}
@@ -34,5 +36,13 @@ package com.music.OneDrop.Dto;
     public void setDuration(String duration) {
         this.duration = duration;
     }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
 }
 
@@ -0,0 +1,45 @@
+package com.music.OneDrop.Dto;
+
+import java.util.List;
+
+/**
+ * Résultat de l'analyse d'une piste séparée (stocké en JSON dans VideoEntry.stemsJson).
+ * Les niveaux valent null pour une piste silencieuse ; bpm et firstBeatSeconds valent null
+ * si aucun tempo n'a pu être détecté.
+ */
+public class StemAnalysisDto {
+
+    private String file;
+    private double durationSeconds;
+    private int sampleRate;
+    private int channels;
+    private Double peakDbfs;
+    private Double rmsDbfs;
+    private Double integratedLufs; // Sonie intégrée (ITU-R BS.1770, fenêtrage K + double gating)
+    private Double bpm;
+    private Double firstBeatSeconds; // Phase de la grille de temps (utile pour caler les boucles)
+    private List<Double> onsets;     // Instants des attaques détectées, en secondes
+
+    public StemAnalysisDto() {}
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+    public double getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(double durationSeconds) { this.durationSeconds = durationSeconds; }
+    public int getSampleRate() { return sampleRate; }
+    public void setSampleRate(int sampleRate) { this.sampleRate = sampleRate; }
+    public int getChannels() { return channels; }
+    public void setChannels(int channels) { this.channels = channels; }
+    public Double getPeakDbfs() { return peakDbfs; }
+    public void setPeakDbfs(Double peakDbfs) { this.peakDbfs = peakDbfs; }
+    public Double getRmsDbfs() { return rmsDbfs; }
+    public void setRmsDbfs(Double rmsDbfs) { this.rmsDbfs = rmsDbfs; }
+    public Double getIntegratedLufs() { return integratedLufs; }
+    public void setIntegratedLufs(Double integratedLufs) { this.integratedLufs = integratedLufs; }
+    public Double getBpm() { return bpm; }
+    public void setBpm(Double bpm) { this.bpm = bpm; }
+    public Double getFirstBeatSeconds() { return firstBeatSeconds; }
+    public void setFirstBeatSeconds(Double firstBeatSeconds) { this.firstBeatSeconds = firstBeatSeconds; }
+    public List<Double> getOnsets() { return onsets; }
+    public void setOnsets(List<Double> onsets) { this.onsets = onsets; }
+}
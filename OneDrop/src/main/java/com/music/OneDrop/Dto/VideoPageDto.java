@@ -0,0 +1,27 @@
+package com.music.OneDrop.Dto;
+
+import java.util.List;
+
+/**
+ * Une page de résultats de recherche YouTube et le curseur de la page suivante (null si dernière page).
+ */
+public class VideoPageDto {
+    private List<VideoDto> items;
+    private String nextPageToken;
+    // Quota épuisé pendant le chargement : détails expirés ou vidéos omises (page jamais mise en cache)
+    private boolean degraded;
+
+    public VideoPageDto() {}
+
+    public VideoPageDto(List<VideoDto> items, String nextPageToken) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<VideoDto> getItems() { return items; }
+    public void setItems(List<VideoDto> items) { this.items = items; }
+    public String getNextPageToken() { return nextPageToken; }
+    public void setNextPageToken(String nextPageToken) { this.nextPageToken = nextPageToken; }
+    public boolean isDegraded() { return degraded; }
+    public void setDegraded(boolean degraded) { this.degraded = degraded; }
+}
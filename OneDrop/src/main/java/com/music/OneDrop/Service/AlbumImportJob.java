@@ -0,0 +1,66 @@
+package com.music.OneDrop.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Import d'un album Spotify : une entrée par piste, de la correspondance YouTube jusqu'au traitement.
+ * La progression du traitement n'est pas copiée ici : elle est lue dans le TaskStatusManager à chaque consultation.
+ */
+class AlbumImportJob {
+
+    enum State {
+        MATCHING,   // Recherche des vidéos YouTube
+        PROCESSING, // Toutes les pistes trouvées sont dans la file de traitement
+        DONE        // Tous les traitements sont terminés (ou en échec)
+    }
+
+    enum Outcome {
+        PENDING_MATCH,   // Pas encore recherchée
+        UNMATCHED,       // Aucune vidéo assez proche
+        QUOTA_EXCEEDED,  // Quota YouTube épuisé : relancer l'import plus tard
+        QUEUED,          // Traitement lancé par cet import
+        ALREADY_RUNNING, // Traitement déjà en cours (autre import ou POST /process)
+        ALREADY_DONE,    // Pistes déjà présentes dans la bibliothèque
+        DUPLICATE        // Même vidéo qu'une autre piste de l'album
+    }
+
+    static final class Item {
+        final int position;
+        final String spotifyTrackId;
+        final String name;
+        final List<String> artists;
+        final long durationMs;
+        volatile String videoId;
+        volatile String videoTitle;
+        volatile double score;
+        volatile boolean fromMatchCache;
+        volatile Outcome outcome = Outcome.PENDING_MATCH;
+
+        Item(int position, String spotifyTrackId, String name, List<String> artists, long durationMs) {
+            this.position = position;
+            this.spotifyTrackId = spotifyTrackId;
+            this.name = name;
+            this.artists = artists;
+            this.durationMs = durationMs;
+        }
+    }
+
+    final String jobId = UUID.randomUUID().toString();
+    final String albumId;
+    final StemModel model;
+    final List<Item> items;
+    final LocalDateTime createdAt = LocalDateTime.now();
+    volatile State state = State.MATCHING;
+
+    AlbumImportJob(String albumId, StemModel model, List<Item> items) {
+        this.albumId = albumId;
+        this.model = model;
+        this.items = List.copyOf(items);
+    }
+
+    String dedupKey() {
+        return model.jobKey(albumId);
+    }
+}
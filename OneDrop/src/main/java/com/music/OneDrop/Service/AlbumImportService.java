@@ -0,0 +1,433 @@
+package com.music.OneDrop.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.OneDrop.Dto.BatchSearchResultDto;
+import com.music.OneDrop.Dto.VideoDto;
+import com.music.OneDrop.Service.AlbumImportJob.Item;
+import com.music.OneDrop.Service.AlbumImportJob.Outcome;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.Service.YoutubeQuotaLimiter.Priority;
+import com.music.OneDrop.model.TrackMatch;
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.TrackMatchRepository;
+import com.music.OneDrop.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import d'un album Spotify vers la bibliothèque de pistes séparées (POST /api/audio/import/spotify-album/{albumId}).
+ * Chaque piste de l'album est associée à une vidéo YouTube : d'abord via le cache persistant TrackMatch,
+ * sinon par une recherche groupée (parallèle, soumise au limiteur de quota) dont les résultats sont notés
+ * par TrackMatcher. Les vidéos retenues, dédupliquées, partent dans la file de traitement habituelle ;
+ * l'import est suivi comme un seul travail avec une progression agrégée.
+ */
+@Service
+public class AlbumImportService {
+
+    // search.list coûte 100 unités quel que soit le nombre de résultats : autant comparer plusieurs candidats
+    private static final long CANDIDATES_PER_TRACK = 8;
+    private static final int MAX_TRACKS = 200;
+    private static final int MAX_JOBS_KEPT = 50;
+    private static final long DEFAULT_QUOTA_RETRY_SECONDS = 60;
+
+    private final SpotifyService spotifyService;
+    private final YoutubeService youtubeService;
+    private final SeparationJobQueue jobQueue;
+    private final TaskStatusManager statusManager;
+    private final VideoRepository videoRepository;
+    private final TrackMatchRepository trackMatchRepository;
+    private final ObjectMapper objectMapper;
+
+    private final double minScore;
+    private final long unmatchedRetryHours;
+    private final long maxQuotaWaitSeconds;
+
+    // Une seule voie pour la recherche des correspondances : les imports passent l'un après l'autre
+    private final ThreadPoolExecutor lane = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "album-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Derniers imports (ordre de création) ; les plus anciens terminés sont oubliés
+    private final Map<String, AlbumImportJob> jobs = new LinkedHashMap<>();
+    // Imports dont les pistes sont en cours de lecture chez Spotify, par clé de déduplication (album + modèle) :
+    // le travail qui en sortira, ou vide en cas d'erreur. Protégé par le verrou de 'jobs'
+    private final Map<String, CompletableFuture<Optional<AlbumImportJob>>> starting = new HashMap<>();
+
+    public AlbumImportService(SpotifyService spotifyService, YoutubeService youtubeService,
+                              SeparationJobQueue jobQueue, TaskStatusManager statusManager,
+                              VideoRepository videoRepository, TrackMatchRepository trackMatchRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${onedrop.import.min-score:0.6}") double minScore,
+                              @Value("${onedrop.import.unmatched-retry-hours:24}") long unmatchedRetryHours,
+                              @Value("${onedrop.import.max-quota-wait-minutes:30}") long maxQuotaWaitMinutes) {
+        this.spotifyService = spotifyService;
+        this.youtubeService = youtubeService;
+        this.jobQueue = jobQueue;
+        this.statusManager = statusManager;
+        this.videoRepository = videoRepository;
+        this.trackMatchRepository = trackMatchRepository;
+        this.objectMapper = objectMapper;
+        this.minScore = minScore;
+        this.unmatchedRetryHours = unmatchedRetryHours;
+        this.maxQuotaWaitSeconds = TimeUnit.MINUTES.toSeconds(maxQuotaWaitMinutes);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lane.shutdownNow();
+    }
+
+    /**
+     * Lit les pistes de l'album puis lance l'import en arrière-plan.
+     * Retourne 202 avec l'état du nouveau travail, 200 avec le travail existant si le même album
+     * est déjà en cours d'import, ou le statut d'erreur de Spotify (401 : jeton à rafraîchir).
+     */
+    public CompletableFuture<ResponseEntity<?>> importAlbum(String albumId, String market, StemModel model, String authorizationHeader) {
+        String dedupKey = model.jobKey(albumId);
+        CompletableFuture<Optional<AlbumImportJob>> placeholder = new CompletableFuture<>();
+        CompletableFuture<Optional<AlbumImportJob>> concurrent;
+        synchronized (jobs) {
+            Optional<AlbumImportJob> running = findUnfinished(dedupKey);
+            if (running.isPresent()) {
+                return CompletableFuture.completedFuture(ResponseEntity.ok(describe(running.get())));
+            }
+            // Réservé avant la lecture des pistes : un second POST pendant cette lecture ne crée pas un second travail
+            concurrent = starting.putIfAbsent(dedupKey, placeholder);
+        }
+        if (concurrent != null) {
+            // Le même album est déjà en cours de lecture : on renvoie son travail (ou on réessaie s'il a échoué)
+            return concurrent.thenCompose(job -> job.isPresent()
+                    ? CompletableFuture.completedFuture(ResponseEntity.ok(describe(job.get())))
+                    : importAlbum(albumId, market, model, authorizationHeader));
+        }
+
+        List<JsonNode> tracks = new ArrayList<>();
+        return collectTracks(albumId, market, authorizationHeader, 0, tracks).<ResponseEntity<?>>thenApply(response -> {
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(response.getBody());
+            }
+            List<Item> items = new ArrayList<>();
+            for (JsonNode track : tracks) {
+                // Les fichiers locaux n'ont pas d'ID Spotify : rien à rechercher
+                if (!track.hasNonNull("id")) {
+                    continue;
+                }
+                List<String> artists = new ArrayList<>();
+                track.path("artists").forEach(artist -> artists.add(artist.path("name").asText()));
+                items.add(new Item(items.size() + 1, track.get("id").asText(), track.path("name").asText(),
+                        artists, track.path("duration_ms").asLong()));
+            }
+            if (items.isEmpty()) {
+                return ResponseEntity.unprocessableEntity().body("No importable tracks in album " + albumId);
+            }
+
+            AlbumImportJob job = new AlbumImportJob(albumId, model, items);
+            synchronized (jobs) {
+                jobs.put(job.jobId, job);
+                pruneJobs();
+            }
+            placeholder.complete(Optional.of(job));
+            System.out.println("Import de l'album " + albumId + " (" + model.getName() + ") : " + items.size() + " pistes, travail " + job.jobId);
+            lane.execute(() -> runMatching(job));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(describe(job));
+        }).whenComplete((response, e) -> {
+            synchronized (jobs) {
+                starting.remove(dedupKey, placeholder);
+            }
+            placeholder.complete(Optional.empty()); // Sans effet si le travail a été créé
+        });
+    }
+
+    public Optional<Map<String, Object>> getJob(String jobId) {
+        AlbumImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        return Optional.ofNullable(job).map(this::describe);
+    }
+
+    public List<Map<String, Object>> listJobs() {
+        List<AlbumImportJob> snapshot;
+        synchronized (jobs) {
+            snapshot = new ArrayList<>(jobs.values());
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (AlbumImportJob job : snapshot) {
+            Map<String, Object> summary = describe(job);
+            summary.remove("items");
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    // Pages successives de l'album (50 pistes par page) ; renvoie la dernière réponse, ou l'erreur de Spotify
+    private CompletableFuture<ResponseEntity<String>> collectTracks(String albumId, String market, String authorizationHeader,
+                                                                    int offset, List<JsonNode> into) {
+        return spotifyService.getAlbumTracksPage(albumId, market, offset, authorizationHeader).thenCompose(response -> {
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                return CompletableFuture.completedFuture(response);
+            }
+            JsonNode page;
+            try {
+                page = objectMapper.readTree(response.getBody());
+            } catch (JsonProcessingException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Invalid JSON from Spotify"));
+            }
+            page.path("items").forEach(into::add);
+            int next = offset + page.path("items").size();
+            if (page.path("items").isEmpty() || next >= page.path("total").asInt() || into.size() >= MAX_TRACKS) {
+                return CompletableFuture.completedFuture(response);
+            }
+            return collectTracks(albumId, market, authorizationHeader, next, into);
+        });
+    }
+
+    // --- Correspondances (voie "album-import") ---
+
+    private void runMatching(AlbumImportJob job) {
+        Set<String> queuedVideoIds = new HashSet<>();
+        List<Item> toSearch = new ArrayList<>();
+        LocalDateTime unmatchedRetryLimit = LocalDateTime.now().minusHours(unmatchedRetryHours);
+        try {
+            for (Item item : job.items) {
+                Optional<TrackMatch> cached = trackMatchRepository.findById(item.spotifyTrackId);
+                if (cached.isPresent() && (cached.get().getVideoId() != null || cached.get().getMatchedAt().isAfter(unmatchedRetryLimit))) {
+                    item.fromMatchCache = true;
+                    applyMatch(job, item, cached.get().getVideoId(), cached.get().getVideoTitle(), cached.get().getDuration(),
+                            cached.get().getScore(), queuedVideoIds);
+                } else {
+                    toSearch.add(item);
+                }
+            }
+            searchAndMatch(job, toSearch, queuedVideoIds);
+        } catch (RuntimeException e) {
+            System.err.println("Album import " + job.jobId + " failed while matching: " + e.getMessage());
+            job.items.stream().filter(item -> item.outcome == Outcome.PENDING_MATCH).forEach(item -> item.outcome = Outcome.UNMATCHED);
+        }
+        job.state = AlbumImportJob.State.PROCESSING;
+    }
+
+    /**
+     * Recherches groupées ; les requêtes refusées par le limiteur de quota sont relancées après le délai indiqué,
+     * tant que l'attente totale reste sous onedrop.import.max-quota-wait-minutes.
+     */
+    private void searchAndMatch(AlbumImportJob job, List<Item> toSearch, Set<String> queuedVideoIds) {
+        List<Item> pending = toSearch;
+        long waitedSeconds = 0;
+        while (!pending.isEmpty()) {
+            List<String> queries = pending.stream().map(AlbumImportService::searchQuery).toList();
+            // Priorité basse : un import ne consomme pas la réserve de quota des recherches interactives
+            List<BatchSearchResultDto> results = youtubeService.searchBatch(queries, CANDIDATES_PER_TRACK, Priority.BACKGROUND);
+
+            List<Item> deferred = new ArrayList<>();
+            long retryAfterSeconds = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                Item item = pending.get(i);
+                BatchSearchResultDto result = results.get(i);
+                // Candidats partiels (quota épuisé) : ni correspondance ni échec n'est retenu, la piste est relancée
+                if ("quota_exceeded".equals(result.getError()) || result.isDegraded()) {
+                    deferred.add(item);
+                    retryAfterSeconds = Math.max(retryAfterSeconds,
+                            result.getRetryAfterSeconds() != null ? result.getRetryAfterSeconds() : DEFAULT_QUOTA_RETRY_SECONDS);
+                } else if (result.getError() != null) {
+                    // Erreur passagère : rien n'est mis en cache, un nouvel import retentera
+                    item.outcome = Outcome.UNMATCHED;
+                } else {
+                    matchCandidates(job, item, result.getQuery(), result.getItems(), queuedVideoIds);
+                }
+            }
+
+            if (deferred.isEmpty()) {
+                return;
+            }
+            if (waitedSeconds + retryAfterSeconds > maxQuotaWaitSeconds) {
+                deferred.forEach(item -> item.outcome = Outcome.QUOTA_EXCEEDED);
+                System.err.println("Album import " + job.jobId + ": YouTube quota exhausted, " + deferred.size() + " tracks left unmatched");
+                return;
+            }
+            try {
+                TimeUnit.SECONDS.sleep(retryAfterSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                deferred.forEach(item -> item.outcome = Outcome.QUOTA_EXCEEDED);
+                return;
+            }
+            waitedSeconds += retryAfterSeconds;
+            pending = deferred;
+        }
+    }
+
+    private void matchCandidates(AlbumImportJob job, Item item, String query, List<VideoDto> candidates, Set<String> queuedVideoIds) {
+        VideoDto best = null;
+        double bestScore = 0;
+        for (VideoDto candidate : candidates) {
+            double score = TrackMatcher.score(item.name, item.artists, item.durationMs, candidate);
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        if (best == null || bestScore < minScore) {
+            best = null;
+        }
+
+        TrackMatch match = new TrackMatch();
+        match.setSpotifyTrackId(item.spotifyTrackId);
+        match.setQuery(query);
+        match.setScore(bestScore);
+        match.setMatchedAt(LocalDateTime.now());
+        if (best != null) {
+            match.setVideoId(best.getVideoId());
+            match.setVideoTitle(best.getTitle());
+            match.setDuration(best.getDuration());
+        }
+        trackMatchRepository.save(match);
+        applyMatch(job, item, match.getVideoId(), match.getVideoTitle(), match.getDuration(), bestScore, queuedVideoIds);
+    }
+
+    private void applyMatch(AlbumImportJob job, Item item, String videoId, String videoTitle, String duration, double score,
+                            Set<String> queuedVideoIds) {
+        item.videoId = videoId;
+        item.videoTitle = videoTitle;
+        item.score = score;
+        if (videoId == null) {
+            item.outcome = Outcome.UNMATCHED;
+            return;
+        }
+        // Deux pistes résolues vers la même vidéo (ex: version single et album) : un seul traitement
+        if (!queuedVideoIds.add(videoId)) {
+            item.outcome = Outcome.DUPLICATE;
+            return;
+        }
+        if (statusManager.hasActiveTask(videoId)) {
+            item.outcome = Outcome.ALREADY_RUNNING;
+            return;
+        }
+        Optional<VideoEntry> existing = videoRepository.findById(videoId);
+        boolean completed = existing.isPresent() && Status.COMPLETED.name().equals(existing.get().getStatus());
+        // Autre modèle : ses pistes sont sur disque (même critère que le pipeline), le statut en mémoire ne survit pas au redémarrage
+        if (completed && (job.model == StemModel.DEFAULT || job.model.isCompleteIn(
+                AudioProcessorService.PERMANENT_TRACKS_DIR.resolve(existing.get().resolveStemsFolderId())))) {
+            item.outcome = Outcome.ALREADY_DONE;
+            return;
+        }
+        // Même démarrage que POST /api/audio/process
+        item.outcome = jobQueue.startJob(videoId, videoTitle != null ? videoTitle : item.name, duration, job.model)
+                ? Outcome.QUEUED : Outcome.ALREADY_RUNNING;
+    }
+
+    private static String searchQuery(Item item) {
+        return item.artists.isEmpty() ? item.name : item.artists.get(0) + " - " + item.name;
+    }
+
+    // --- État et progression ---
+
+    private Optional<AlbumImportJob> findUnfinished(String dedupKey) {
+        List<AlbumImportJob> snapshot;
+        synchronized (jobs) {
+            snapshot = new ArrayList<>(jobs.values());
+        }
+        return snapshot.stream()
+                .filter(job -> job.dedupKey().equals(dedupKey))
+                .filter(job -> {
+                    describe(job); // Met à jour l'état
+                    return job.state != AlbumImportJob.State.DONE;
+                })
+                .findFirst();
+    }
+
+    private void pruneJobs() {
+        if (jobs.size() <= MAX_JOBS_KEPT) {
+            return;
+        }
+        jobs.values().removeIf(job -> job.state == AlbumImportJob.State.DONE && jobs.size() > MAX_JOBS_KEPT);
+    }
+
+    private Map<String, Object> describe(AlbumImportJob job) {
+        Map<Status, Integer> progress = new EnumMap<>(Status.class);
+        List<Map<String, Object>> items = new ArrayList<>();
+        int tracked = 0;
+        int finished = 0;
+        for (Item item : job.items) {
+            Status status = trackStatus(job, item);
+            if (status != null) {
+                progress.merge(status, 1, Integer::sum);
+                tracked++;
+                if (status == Status.COMPLETED || status == Status.FAILED || status == Status.EVICTED) {
+                    finished++;
+                }
+            }
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("position", item.position);
+            view.put("spotifyTrackId", item.spotifyTrackId);
+            view.put("name", item.name);
+            view.put("artists", item.artists);
+            view.put("durationMs", item.durationMs);
+            view.put("videoId", item.videoId);
+            view.put("videoTitle", item.videoTitle);
+            view.put("score", Math.round(item.score * 100) / 100.0);
+            view.put("fromMatchCache", item.fromMatchCache);
+            view.put("outcome", item.outcome);
+            view.put("status", status);
+            items.add(view);
+        }
+        if (job.state == AlbumImportJob.State.PROCESSING && finished == tracked) {
+            job.state = AlbumImportJob.State.DONE;
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("jobId", job.jobId);
+        summary.put("albumId", job.albumId);
+        summary.put("model", job.model.getName());
+        summary.put("state", job.state);
+        summary.put("createdAt", job.createdAt);
+        summary.put("tracks", job.items.size());
+        summary.put("matched", job.items.stream().filter(item -> item.videoId != null).count());
+        summary.put("unmatched", job.items.stream()
+                .filter(item -> item.outcome == Outcome.UNMATCHED || item.outcome == Outcome.QUOTA_EXCEEDED).count());
+        summary.put("progress", progress);
+        summary.put("percent", tracked == 0 ? 0 : Math.round(100.0 * finished / tracked));
+        summary.put("items", items);
+        return summary;
+    }
+
+    // Statut de traitement de la vidéo d'une piste ; null si elle n'en a pas (pas de correspondance, doublon)
+    private Status trackStatus(AlbumImportJob job, Item item) {
+        if (item.videoId == null || item.outcome == Outcome.DUPLICATE || item.outcome == Outcome.PENDING_MATCH) {
+            return null;
+        }
+        if (item.outcome == Outcome.ALREADY_DONE) {
+            return Status.COMPLETED;
+        }
+        Status status = statusManager.getStatus(job.model.jobKey(item.videoId));
+        if (status == null && item.outcome == Outcome.ALREADY_RUNNING) {
+            // Lancé pour un autre modèle : on suit la tâche principale de la vidéo
+            status = statusManager.getStatus(item.videoId);
+        }
+        return status != null ? status : Status.PENDING;
+    }
+}
@@ -0,0 +1,65 @@
+package com.music.OneDrop.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking semaphore for asynchronous calls: at most 'maxConcurrent' tasks run at once,
+ * the others wait in a FIFO queue and start as soon as a running one completes.
+ * No thread is ever parked while waiting for a permit (unlike java.util.concurrent.Semaphore).
+ */
+final class AsyncPermits {
+
+    private final int maxConcurrent;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    AsyncPermits(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            CompletableFuture<T> call;
+            try {
+                call = task.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        synchronized (this) {
+            if (running >= maxConcurrent) {
+                waiting.add(start);
+                return result;
+            }
+            running++;
+        }
+        start.run();
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        // The permit is handed over directly to the next waiting task
+        if (next != null) {
+            next.run();
+        }
+    }
+}
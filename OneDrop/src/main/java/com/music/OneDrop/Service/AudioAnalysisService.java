@@ -0,0 +1,409 @@
+package com.music.OneDrop.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.OneDrop.Dto.StemAnalysisDto;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyse des pistes séparées, en une seule passe par fichier avec un tampon de taille fixe :
+ * durée, niveaux crête/RMS, sonie intégrée (BS.1770), tempo et grille d'attaques.
+ * Le résultat est sérialisé en JSON pour VideoEntry.stemsJson.
+ */
+@Service
+public class AudioAnalysisService {
+
+    private static final int BUFFER_FRAMES = 4096;
+    private static final int ONSET_HOP_FRAMES = 512;  // ~11.6 ms à 44.1 kHz
+    private static final int MAX_ONSETS = 4096;
+    private static final double MIN_ONSET_GAP_SECONDS = 0.05;
+    private static final double MIN_ONSET_NOVELTY = 0.3;  // Hausse d'énergie minimale (~35 %) pour une attaque
+    private static final int MIN_ONSETS_FOR_TEMPO = 8;
+    private static final double MIN_BPM = 60;
+    private static final double MAX_BPM = 200;
+
+    // Gating BS.1770 : blocs de 400 ms avec recouvrement de 75 % (pas de 100 ms)
+    private static final double ABSOLUTE_GATE_LUFS = -70.0;
+    private static final double RELATIVE_GATE_LU = -10.0;
+
+    private final ObjectMapper objectMapper;
+
+    public AudioAnalysisService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Analyse tous les fichiers .wav d'un dossier de pistes.
+     * @return Le JSON à stocker dans stemsJson : {"stems": {"vocals": {...}, ...}}.
+     */
+    public String analyzeStemsFolder(Path stemsFolder) throws IOException {
+        File[] stemFiles = stemsFolder.toFile().listFiles((dir, name) -> name.endsWith(".wav"));
+        if (stemFiles == null || stemFiles.length == 0) {
+            throw new IOException("No stems to analyze in " + stemsFolder);
+        }
+        Arrays.sort(stemFiles);
+
+        Map<String, StemAnalysisDto> stems = new LinkedHashMap<>();
+        for (File stemFile : stemFiles) {
+            String stemName = stemFile.getName().substring(0, stemFile.getName().length() - ".wav".length());
+            stems.put(stemName, analyzeStem(stemFile.toPath()));
+        }
+        try {
+            return objectMapper.writeValueAsString(Map.of("stems", stems));
+        } catch (JsonProcessingException e) {
+            throw new IOException("Could not serialize stems analysis", e);
+        }
+    }
+
+    /**
+     * Analyse une piste en une passe. La mémoire utilisée ne dépend pas de la taille du fichier,
+     * hormis les enveloppes (une valeur par 100 ms pour la sonie, une par 512 trames pour les attaques).
+     */
+    public StemAnalysisDto analyzeStem(Path wavFile) throws IOException {
+        WavHeader header = WavHeader.read(wavFile);
+        int channels = header.getChannels();
+        int sampleRate = header.getSampleRate();
+
+        KWeightingFilter[] kFilters = new KWeightingFilter[channels];
+        for (int c = 0; c < channels; c++) {
+            kFilters[c] = new KWeightingFilter(sampleRate);
+        }
+        int loudnessStepFrames = Math.max(1, sampleRate / 10);
+        DoubleList loudnessSteps = new DoubleList();  // Somme des carrés pondérés K par pas de 100 ms
+        DoubleList onsetEnvelope = new DoubleList();  // Énergie des transitoires par pas de 512 trames
+
+        double peak = 0;
+        double sumSquares = 0;
+        double stepSum = 0;
+        int stepFrames = 0;
+        double hopEnergy = 0;
+        int hopFrames = 0;
+        double previousMono = 0;
+
+        try (FileChannel channel = FileChannel.open(wavFile, StandardOpenOption.READ)) {
+            int blockAlign = header.getBlockAlign();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_FRAMES * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+            long position = header.getDataOffset();
+            long end = header.getDataOffset() + header.getFrameCount() * blockAlign;
+
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+
+                while (buffer.remaining() >= blockAlign) {
+                    double mono = 0;
+                    for (int c = 0; c < channels; c++) {
+                        double sample = header.readSample(buffer);
+                        double magnitude = Math.abs(sample);
+                        if (magnitude > peak) {
+                            peak = magnitude;
+                        }
+                        sumSquares += sample * sample;
+                        double weighted = kFilters[c].process(sample);
+                        stepSum += weighted * weighted;
+                        mono += sample;
+                    }
+                    mono /= channels;
+
+                    if (++stepFrames == loudnessStepFrames) {
+                        loudnessSteps.add(stepSum / loudnessStepFrames);
+                        stepSum = 0;
+                        stepFrames = 0;
+                    }
+
+                    // La dérivée du signal accentue les transitoires (attaques) par rapport aux sons tenus
+                    double derivative = mono - previousMono;
+                    previousMono = mono;
+                    hopEnergy += derivative * derivative;
+                    if (++hopFrames == ONSET_HOP_FRAMES) {
+                        onsetEnvelope.add(hopEnergy);
+                        hopEnergy = 0;
+                        hopFrames = 0;
+                    }
+                }
+            }
+        }
+
+        long frames = header.getFrameCount();
+        StemAnalysisDto analysis = new StemAnalysisDto();
+        analysis.setFile(wavFile.getFileName().toString());
+        analysis.setDurationSeconds(round(header.getDurationSeconds(), 3));
+        analysis.setSampleRate(sampleRate);
+        analysis.setChannels(channels);
+        analysis.setPeakDbfs(toDecibels(peak, 20));
+        analysis.setRmsDbfs(frames == 0 ? null : toDecibels(sumSquares / (frames * channels), 10));
+        analysis.setIntegratedLufs(integratedLoudness(loudnessSteps));
+
+        double envelopeRate = (double) sampleRate / ONSET_HOP_FRAMES;
+        double[] novelty = noveltyCurve(onsetEnvelope);
+        List<Double> onsets = pickOnsets(novelty, envelopeRate);
+        analysis.setOnsets(onsets);
+        // Sans attaques nettes (son tenu, piste quasi silencieuse), l'autocorrélation ne mesure que du bruit
+        Double bpm = onsets.size() < MIN_ONSETS_FOR_TEMPO ? null : estimateTempo(novelty, envelopeRate);
+        if (bpm != null) {
+            analysis.setBpm(round(bpm, 1));
+            analysis.setFirstBeatSeconds(round(beatPhase(novelty, envelopeRate, bpm), 3));
+        }
+        return analysis;
+    }
+
+    // --- Sonie intégrée (ITU-R BS.1770-4) ---
+
+    private static Double integratedLoudness(DoubleList steps) {
+        int blockCount = steps.size() - 3;
+        if (blockCount <= 0) {
+            return null;
+        }
+        double[] blocks = new double[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blocks[i] = (steps.get(i) + steps.get(i + 1) + steps.get(i + 2) + steps.get(i + 3)) / 4;
+        }
+
+        double absoluteGate = lufsToPower(ABSOLUTE_GATE_LUFS);
+        double sum = 0;
+        int count = 0;
+        for (double block : blocks) {
+            if (block > absoluteGate) {
+                sum += block;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        double relativeGate = lufsToPower(powerToLufs(sum / count) + RELATIVE_GATE_LU);
+        double gatedSum = 0;
+        int gatedCount = 0;
+        for (double block : blocks) {
+            if (block > absoluteGate && block > relativeGate) {
+                gatedSum += block;
+                gatedCount++;
+            }
+        }
+        return gatedCount == 0 ? null : round(powerToLufs(gatedSum / gatedCount), 2);
+    }
+
+    private static double powerToLufs(double power) {
+        return -0.691 + 10 * Math.log10(power);
+    }
+
+    private static double lufsToPower(double lufs) {
+        return Math.pow(10, (lufs + 0.691) / 10);
+    }
+
+    /**
+     * Filtre de pondération K (étage "shelving" + passe-haut), coefficients recalculés pour la fréquence
+     * d'échantillonnage du fichier ; à 48 kHz ils redonnent exactement ceux de la norme.
+     */
+    private static final class KWeightingFilter {
+        private final Biquad shelf;
+        private final Biquad highPass;
+
+        KWeightingFilter(int sampleRate) {
+            // Étage 1 : plateau haute fréquence (+4 dB)
+            double fc = 1681.974450955533;
+            double gainDb = 3.999843853973347;
+            double q = 0.7071752369554196;
+            double k = Math.tan(Math.PI * fc / sampleRate);
+            double vh = Math.pow(10, gainDb / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            shelf = new Biquad(vh + vb * k / q + k * k, 2 * (k * k - vh), vh - vb * k / q + k * k,
+                    a0, 2 * (k * k - 1), 1 - k / q + k * k);
+
+            // Étage 2 : passe-haut (courbe RLB), numérateur fixé à [1, -2, 1] par la norme
+            fc = 38.13547087602444;
+            q = 0.5003270373238773;
+            k = Math.tan(Math.PI * fc / sampleRate);
+            a0 = 1 + k / q + k * k;
+            highPass = new Biquad(a0, -2 * a0, a0, a0, 2 * (k * k - 1), 1 - k / q + k * k);
+        }
+
+        double process(double sample) {
+            return highPass.process(shelf.process(sample));
+        }
+    }
+
+    private static final class Biquad {
+        private final double b0, b1, b2, a1, a2;
+        private double x1, x2, y1, y2;
+
+        Biquad(double b0, double b1, double b2, double a0, double a1, double a2) {
+            this.b0 = b0 / a0;
+            this.b1 = b1 / a0;
+            this.b2 = b2 / a0;
+            this.a1 = a1 / a0;
+            this.a2 = a2 / a0;
+        }
+
+        double process(double x) {
+            double y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+            return y;
+        }
+    }
+
+    // --- Attaques et tempo ---
+
+    // Nouveauté : hausse (redressée) du logarithme de l'énergie des transitoires d'un pas à l'autre
+    private static double[] noveltyCurve(DoubleList envelope) {
+        double[] novelty = new double[envelope.size()];
+        double previous = Math.log1p(envelope.size() > 0 ? envelope.get(0) * 1000 : 0);
+        for (int i = 1; i < envelope.size(); i++) {
+            double current = Math.log1p(envelope.get(i) * 1000);
+            novelty[i] = Math.max(0, current - previous);
+            previous = current;
+        }
+        return novelty;
+    }
+
+    // Maxima locaux au-dessus d'un seuil adaptatif (moyenne locale), espacés d'au moins 50 ms
+    private static List<Double> pickOnsets(double[] novelty, double envelopeRate) {
+        List<Double> onsets = new ArrayList<>();
+        if (novelty.length < 3) {
+            return onsets;
+        }
+        double globalMean = Arrays.stream(novelty).average().orElse(0);
+        if (globalMean <= 0) {
+            return onsets;
+        }
+        int window = Math.max(1, (int) Math.round(envelopeRate * 0.1));
+        int minGap = Math.max(1, (int) Math.ceil(envelopeRate * MIN_ONSET_GAP_SECONDS));
+
+        // Moyenne glissante calculée par sommes cumulées
+        double[] cumulative = new double[novelty.length + 1];
+        for (int i = 0; i < novelty.length; i++) {
+            cumulative[i + 1] = cumulative[i] + novelty[i];
+        }
+
+        int lastOnset = -minGap;
+        for (int i = 1; i < novelty.length - 1 && onsets.size() < MAX_ONSETS; i++) {
+            if (novelty[i] <= novelty[i - 1] || novelty[i] < novelty[i + 1]) {
+                continue;
+            }
+            int from = Math.max(0, i - window);
+            int to = Math.min(novelty.length, i + window + 1);
+            double localMean = (cumulative[to] - cumulative[from]) / (to - from);
+            if (novelty[i] > MIN_ONSET_NOVELTY && novelty[i] > 1.5 * localMean + 0.5 * globalMean && i - lastOnset >= minGap) {
+                onsets.add(round(i / envelopeRate, 3));
+                lastOnset = i;
+            }
+        }
+        return onsets;
+    }
+
+    // Autocorrélation de la courbe de nouveauté sur la plage de tempo, pondérée autour de 120 BPM
+    private static Double estimateTempo(double[] novelty, double envelopeRate) {
+        int minLag = (int) Math.floor(envelopeRate * 60 / MAX_BPM);
+        int maxLag = (int) Math.ceil(envelopeRate * 60 / MIN_BPM);
+        if (minLag < 1 || novelty.length < maxLag * 4) {
+            return null;
+        }
+        double mean = Arrays.stream(novelty).average().orElse(0);
+        double[] centered = new double[novelty.length];
+        for (int i = 0; i < novelty.length; i++) {
+            centered[i] = novelty[i] - mean;
+        }
+
+        double[] scores = new double[maxLag + 2];
+        int bestLag = -1;
+        for (int lag = minLag; lag <= maxLag + 1; lag++) {
+            double acf = 0;
+            for (int i = lag; i < centered.length; i++) {
+                acf += centered[i] * centered[i - lag];
+            }
+            double bpm = envelopeRate * 60 / lag;
+            double octaves = Math.log(bpm / 120) / Math.log(2);
+            scores[lag] = acf * Math.exp(-0.5 * octaves * octaves);
+            if (lag <= maxLag && (bestLag < 0 || scores[lag] > scores[bestLag])) {
+                bestLag = lag;
+            }
+        }
+        if (bestLag < 0 || scores[bestLag] <= 0) {
+            return null;
+        }
+
+        // Interpolation parabolique autour du maximum pour une précision inférieure au pas
+        double refinedLag = bestLag;
+        if (bestLag > minLag) {
+            double left = scores[bestLag - 1], center = scores[bestLag], right = scores[bestLag + 1];
+            double denominator = left - 2 * center + right;
+            if (denominator < 0) {
+                refinedLag += 0.5 * (left - right) / denominator;
+            }
+        }
+        return envelopeRate * 60 / refinedLag;
+    }
+
+    // Décalage de la grille de temps qui maximise la nouveauté sur les temps
+    private static double beatPhase(double[] novelty, double envelopeRate, double bpm) {
+        double period = envelopeRate * 60 / bpm;
+        int bestPhase = 0;
+        double bestScore = -1;
+        for (int phase = 0; phase < (int) Math.ceil(period); phase++) {
+            double score = 0;
+            for (double t = phase; Math.round(t) < novelty.length; t += period) {
+                score += novelty[(int) Math.round(t)];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestPhase = phase;
+            }
+        }
+        return bestPhase / envelopeRate;
+    }
+
+    // --- Utilitaires ---
+
+    private static Double toDecibels(double value, int factor) {
+        return value <= 0 ? null : round(factor * Math.log10(value), 2);
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+
+    // Liste de doubles primitifs (évite le boxing sur des dizaines de milliers de valeurs)
+    private static final class DoubleList {
+        private double[] values = new double[1024];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        double get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Récupère l'audio source d'une vidéo au format WAV.
+ * Implémentation choisie par onedrop.engine.downloader : yt-dlp (défaut) ou synthetic.
+ */
+public interface AudioDownloader {
+
+    /**
+     * Écrit l'audio de la vidéo dans 'targetWav' (le dossier parent existe déjà).
+     */
+    void download(String videoId, Path targetWav) throws IOException, InterruptedException;
+}
@@ -0,0 +1,63 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Empreinte du contenu audio d'un fichier WAV téléchargé.
+ * Seul le PCM décodé (bloc "data") est haché : les métadonnées ajoutées par l'encodeur
+ * (chunk LIST, titre...) ne changent donc pas l'empreinte d'un même enregistrement.
+ */
+@Component
+public class AudioFingerprinter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Calcule le SHA-256 du PCM en une passe, avec un tampon de taille fixe.
+     * @param wavFile Le fichier WAV source.
+     * @return L'empreinte en hexadécimal, préfixée par l'algorithme (ex: "pcm-sha256:...").
+     */
+    public String fingerprint(Path wavFile) throws IOException {
+        WavHeader header = WavHeader.read(wavFile);
+        MessageDigest digest = newDigest();
+        // Le format fait partie de l'empreinte : mêmes octets, fréquence différente = autre contenu
+        digest.update(ByteBuffer.allocate(12)
+                .putInt(header.getChannels())
+                .putInt(header.getSampleRate())
+                .putInt(header.getBitsPerSample())
+                .flip());
+
+        try (FileChannel channel = FileChannel.open(wavFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long position = header.getDataOffset();
+            long end = header.getDataOffset() + header.getDataLength();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                digest.update(buffer.flip());
+            }
+        }
+        return "pcm-sha256:" + HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package com.music.OneDrop.Service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Semaphore;
 import com.music.OneDrop.repository.VideoRepository;
 // Importez les classes de statut que nous avons définies
 import com.music.OneDrop.Service.TaskStatusManager; 
@@ -29,182 +34,405 @@ public class AudioProcessorService {
     // Chemin de base : C:\Users\Nom\OneDrop
     private static final String APP_DATA_DIR_STRING = 
         System.getProperty("user.home") + File.separator + APP_NAME_FOLDER; 
+    static final Path APP_DATA_DIR = Paths.get(APP_DATA_DIR_STRING);
     
-    // Dossiers de travail : ...\OneDrop\temp et ...\OneDrop\tracks
-    private static final Path TEMP_DOWNLOAD_DIR = Paths.get(APP_DATA_DIR_STRING, "temp");
-    private static final Path PERMANENT_TRACKS_DIR = Paths.get(APP_DATA_DIR_STRING, "tracks");
+    // Dossiers de travail : ...\OneDrop\temp (toujours local) et ...\OneDrop\tracks.
+    // Les pistes peuvent être placées dans un dossier partagé entre le nœud API et les workers :
+    // -Donedrop.tracks-root=/mnt/onedrop/tracks ou variable ONEDROP_TRACKS_ROOT (lue au chargement de la classe)
+    private static final Path TEMP_DOWNLOAD_DIR = APP_DATA_DIR.resolve("temp");
+    public static final Path PERMANENT_TRACKS_DIR = resolveTracksRoot();
     
-    // Chemin du répertoire d'exécution (où le JAR/Exécutable est lancé)
-    private static final String WORKING_DIR = System.getProperty("user.dir"); 
-    
-    // Chemins absolus vers les exécutables (doivent être dans le dossier 'tools')
-    private static final String YTDLP_EXEC_PATH = 
-        Paths.get(WORKING_DIR, "tools", "yt-dlp.exe").toAbsolutePath().toString(); 
-    private static final String SPLEETER_EXEC_PATH = 
-        Paths.get(WORKING_DIR, "tools", "spleeter.exe").toAbsolutePath().toString(); 
+    // Les outils externes (yt-dlp, Spleeter) sont derrière AudioDownloader et SeparationEngine :
+    // exécutables configurables, ou moteur synthétique (onedrop.engine.*)
 
 // Injection du gestionnaire de statut
 private final TaskStatusManager statusManager;
 private final VideoRepository videoRepository;
-public AudioProcessorService(TaskStatusManager statusManager, VideoRepository videoRepository) {
+private final LibrarySearchIndex searchIndex;
+private final StorageQuotaManager storageQuotaManager;
+private final AudioFingerprinter fingerprinter;
+private final AudioAnalysisService analysisService;
+private final SourceAudioCache sourceCache;
+private final AudioDownloader downloader;
+private final SeparationEngine separationEngine;
+private final CpuGovernor cpuGovernor;
+// Traitements simultanés : le pool @Async par défaut (8 threads) les bornait déjà ; en mode threads
+// virtuels, @Async n'a plus de pool et seule cette borne évite de lancer un Spleeter par requête
+private final Semaphore pipelineSlots;
+public AudioProcessorService(TaskStatusManager statusManager, VideoRepository videoRepository, LibrarySearchIndex searchIndex,
+                             StorageQuotaManager storageQuotaManager, AudioFingerprinter fingerprinter,
+                             AudioAnalysisService analysisService, SourceAudioCache sourceCache,
+                             AudioDownloader downloader, SeparationEngine separationEngine, CpuGovernor cpuGovernor,
+                             @Value("${onedrop.pipeline.max-concurrent-jobs:8}") int maxConcurrentJobs) {
     this.statusManager = statusManager;
     this.videoRepository = videoRepository;
+    this.searchIndex = searchIndex;
+    this.storageQuotaManager = storageQuotaManager;
+    this.fingerprinter = fingerprinter;
+    this.analysisService = analysisService;
+    this.sourceCache = sourceCache;
+    this.downloader = downloader;
+    this.separationEngine = separationEngine;
+    this.cpuGovernor = cpuGovernor;
+    this.pipelineSlots = new Semaphore(maxConcurrentJobs, true);
 }
 
-    // --- 2. FONCTION UTILITAIRE : EXÉCUTION DE COMMANDE (MODIFIÉE) ---
-    
-    /**
-     * Exécute une commande système et retourne son code de sortie.
-     * @param builder Le ProcessBuilder configuré.
-     * @return Le code de sortie du processus.
-     */
-    private int runCommand(ProcessBuilder builder) throws IOException, InterruptedException {
-        
-        System.out.println("Attempting to run command: " + String.join(" ", builder.command()));
-        Process process = builder.start();
-        
-        // Lire et loguer la sortie d'erreur (pour les messages TensorFlow)
-        new Thread(() -> { 
-           try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-               String line;
-               while ((line = reader.readLine()) != null) {
-                   System.err.println("EXTERNAL ERR: " + line);
-               }
-           } catch (IOException e) { 
-               System.err.println("Error reading process error stream: " + e.getMessage());
-           }
-        }).start();
-
-        // Attendre la fin du processus avec un timeout
-        boolean finished = process.waitFor(20, TimeUnit.MINUTES);
-        
-        if (!finished) {
-             process.destroyForcibly();
-             throw new RuntimeException("External command timed out (Exceeded 20 minutes).");
+    private static Path resolveTracksRoot() {
+        String configured = System.getProperty("onedrop.tracks-root", System.getenv("ONEDROP_TRACKS_ROOT"));
+        if (configured == null || configured.isBlank()) {
+            return APP_DATA_DIR.resolve("tracks");
         }
-        
-        // Ne lève plus d'exception ici, le code appelant (processAudioInternal) gère le code de sortie.
-        return process.exitValue();
+        return Paths.get(configured.trim()).toAbsolutePath();
     }
-    
-    // --- 3. LOGIQUE ASYNCHRONE PRINCIPALE ---
+
+    // --- 2. LOGIQUE ASYNCHRONE PRINCIPALE ---
     
     /**
-     * Démarre le traitement audio dans un thread séparé et met à jour l'état.
+     * Démarre le traitement audio (modèle par défaut, 2stems) dans un thread séparé et met à jour l'état.
      */
     @Async
     public void startAudioProcessing(String videoId) {
+        startAudioProcessing(videoId, StemModel.DEFAULT);
+    }
+
+    /**
+     * Démarre le traitement audio pour un modèle de séparation donné.
+     * Le statut de la tâche est suivi sous la clé du modèle (voir StemModel.jobKey).
+     */
+    @Async
+    public void startAudioProcessing(String videoId, StemModel model) {
+        runJob(videoId, model);
+    }
+
+    /**
+     * Exécute un traitement dans le thread appelant (pipeline @Async), puis enregistre le succès ou l'échec.
+     * @return true si les pistes ont été produites.
+     */
+    public boolean runJob(String videoId, StemModel model) {
+        return runJob(videoId, model, null);
+    }
+
+    /**
+     * Variante d'un worker : les écritures sur l'entrée n'aboutissent que tant que leaseOwner détient le bail.
+     * Un bail perdu (traitement repris par un autre worker) arrête le traitement sans rien écrire.
+     * @param leaseOwner Le worker détenteur du bail, ou null hors file partagée.
+     */
+    public boolean runJob(String videoId, StemModel model, String leaseOwner) {
+        try {
+            pipelineSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handleFailure(videoId, model, leaseOwner);
+            return false;
+        }
         try {
-            processAudioInternal(videoId);
-            handleSuccess(videoId);
+            processAudioInternal(videoId, model, leaseOwner);
+            handleSuccess(videoId, model, leaseOwner);
+            return true;
         } catch (Exception e) {
-            System.err.println("Échec du traitement audio pour " + videoId + ": " + e.getMessage());
-            handleFailure(videoId);
+            System.err.println("Échec du traitement audio pour " + model.jobKey(videoId) + ": " + e.getMessage());
+            handleFailure(videoId, model, leaseOwner);
+            return false;
+        } finally {
+            pipelineSlots.release();
         }
     }
 
-    private void handleSuccess(String videoId) {
-        statusManager.updateStatus(videoId, Status.COMPLETED);
+    /**
+     * Reprise d'un traitement dont le worker précédent s'est arrêté en route : ses pistes, même toutes
+     * présentes, peuvent être tronquées ou sans analyse. Elles sont supprimées pour être reproduites.
+     * Seul le dossier propre de la vidéo est concerné : les pistes d'un doublon appartiennent à l'autre vidéo.
+     */
+    void discardInterruptedStems(String videoId, StemModel model) throws IOException {
+        Optional<VideoEntry> optionalEntry = videoRepository.findById(videoId);
+        if (optionalEntry.isPresent() && optionalEntry.get().getStemsVideoId() != null) {
+            if (model == StemModel.DEFAULT) {
+                // Lien posé par la tentative interrompue (déduplication) : la reprise repart de zéro
+                VideoEntry entry = optionalEntry.get();
+                entry.setStemsVideoId(null);
+                videoRepository.save(entry);
+            }
+            return;
+        }
+        Path modelFolder = model.folderIn(PERMANENT_TRACKS_DIR.resolve(videoId));
+        for (String stem : model.getStems()) {
+            Files.deleteIfExists(modelFolder.resolve(stem + ".wav"));
+        }
+    }
+
+    private void handleSuccess(String videoId, StemModel model, String leaseOwner) {
+        statusManager.updateStatus(model.jobKey(videoId), Status.COMPLETED);
+        if (model != StemModel.DEFAULT) {
+            // Les pistes du modèle par défaut sont toujours produites (ou dérivées) en même temps
+            statusManager.updateStatus(videoId, Status.COMPLETED);
+        }
         Optional<VideoEntry> optionalEntry = videoRepository.findById(videoId);
         if (optionalEntry.isPresent()) {
             VideoEntry entry = optionalEntry.get();
+            // Un modèle supplémentaire ne change pas la date de la vidéo dans la bibliothèque
+            if (model == StemModel.DEFAULT || !Status.COMPLETED.name().equals(entry.getStatus())) {
+                entry.setProcessedAt(LocalDateTime.now());
+            }
             entry.setStatus(Status.COMPLETED.name());
-            entry.setProcessedAt(LocalDateTime.now());
-            videoRepository.save(entry);
-            System.out.println("Processing COMPLETED and DB updated for: " + videoId);
+            if (leaseOwner == null) {
+                videoRepository.save(entry);
+            } else {
+                checkLeaseHeld(videoRepository.finishLeasedJob(videoId, leaseOwner, entry.getStatus(), entry.getProcessedAt()), videoId);
+            }
+            searchIndex.put(entry); // Mise à jour incrémentale de l'index de recherche
+            System.out.println("Processing COMPLETED and DB updated for: " + model.jobKey(videoId));
         } else {
             System.err.println("CRITICAL: Video entry not found in DB after successful completion: " + videoId);
         }
+        // Comptabiliser le dossier de pistes, sous-dossiers des modèles compris (peut déclencher une éviction LRU).
+        // Une vidéo liée à des pistes existantes (doublon) est comptée dans le dossier qu'elle partage.
+        String stemsFolderId = optionalEntry.map(VideoEntry::resolveStemsFolderId).orElse(videoId);
+        storageQuotaManager.recordStored(stemsFolderId);
     }
 
-    private void handleFailure(String videoId) {
-        statusManager.updateStatus(videoId, Status.FAILED);
+    private void handleFailure(String videoId, StemModel model, String leaseOwner) {
+        statusManager.updateStatus(model.jobKey(videoId), Status.FAILED);
         Optional<VideoEntry> optionalEntry = videoRepository.findById(videoId);
-        if (optionalEntry.isPresent()) {
+        // L'échec d'un modèle supplémentaire laisse intactes les pistes déjà produites
+        if (optionalEntry.isPresent()
+                && (model == StemModel.DEFAULT || !Status.COMPLETED.name().equals(optionalEntry.get().getStatus()))) {
             VideoEntry entry = optionalEntry.get();
             entry.setStatus(Status.FAILED.name());
             entry.setProcessedAt(null);
-            videoRepository.save(entry);
-            System.err.println("Processing FAILED and DB updated for: " + videoId);
+            if (leaseOwner == null) {
+                videoRepository.save(entry);
+            } else if (videoRepository.finishLeasedJob(videoId, leaseOwner, entry.getStatus(), null) == 0) {
+                System.err.println("Lease lost on " + model.jobKey(videoId) + ": failure left to the new owner");
+                return;
+            }
+            searchIndex.remove(videoId);
+            System.err.println("Processing FAILED and DB updated for: " + model.jobKey(videoId));
         }
     }
 
     /**
-     * Contient la logique séquentielle de téléchargement et de séparation.
+     * Contient la logique séquentielle de téléchargement et de séparation (modèle par défaut).
      */
     public void processAudioInternal(String videoId) throws Exception {
-        
-        Path videoTracksFolder = PERMANENT_TRACKS_DIR.resolve(videoId);
+        processAudioInternal(videoId, StemModel.DEFAULT);
+    }
+
+    /**
+     * Produit les pistes d'un modèle : par dérivation (mix PCM) si un modèle plus fin existe déjà,
+     * sinon par téléchargement et séparation. Le modèle par défaut est toujours produit en plus.
+     */
+    public void processAudioInternal(String videoId, StemModel model) throws Exception {
+        processAudioInternal(videoId, model, null);
+    }
+
+    private void processAudioInternal(String videoId, StemModel model, String leaseOwner) throws Exception {
+        String jobKey = model.jobKey(videoId);
+
+        // Une vidéo dédupliquée range ses autres modèles dans le dossier qu'elle partage
+        String stemsFolderId = videoRepository.findById(videoId).map(VideoEntry::resolveStemsFolderId).orElse(videoId);
+        Path videoTracksFolder = PERMANENT_TRACKS_DIR.resolve(stemsFolderId);
+        Path modelFolder = model.folderIn(videoTracksFolder);
         
         // --- ÉTAPE 1: VÉRIFICATION & PRÉPARATION ---
-        if (videoTracksFolder.toFile().exists() && videoTracksFolder.toFile().list().length > 0) {
-             throw new IllegalStateException("Pistes audio déjà trouvées.");
+        if (model.isCompleteIn(videoTracksFolder)) {
+            if (model == StemModel.DEFAULT) {
+                throw new IllegalStateException("Pistes audio déjà trouvées.");
+            }
+            System.out.println("Pistes " + model.getName() + " déjà présentes pour " + videoId);
+            return;
+        }
+
+        // --- ÉTAPE 1b: DÉRIVATION DEPUIS UN MODÈLE PLUS FIN (mix PCM, sans Spleeter) ---
+        for (StemModel finer : StemModel.values()) {
+            Optional<Map<String, List<String>>> recipe = model.derivationFrom(finer);
+            if (recipe.isPresent() && finer.isCompleteIn(videoTracksFolder)) {
+                statusManager.updateStatus(jobKey, Status.SEPARATING);
+                long start = System.nanoTime();
+                StemMixer.derive(finer.folderIn(videoTracksFolder), modelFolder, recipe.get());
+                System.out.println("Pistes " + model.getName() + " dérivées de " + finer.getName() + " pour " + videoId
+                        + " en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                if (model == StemModel.DEFAULT) {
+                    storeStemsAnalysis(videoId, modelFolder, leaseOwner);
+                }
+                return;
+            }
         }
         
         TEMP_DOWNLOAD_DIR.toFile().mkdirs();
         videoTracksFolder.toFile().mkdirs();
 
         String tempInputFile = TEMP_DOWNLOAD_DIR.resolve(videoId + ".wav").toString();
-        String youtubeUrl = "https://www.youtube.com/watch?v=" + videoId;
         
         // --- ÉTAPE 2: TÉLÉCHARGEMENT AVEC YOUTUBE-DLP ---
-        statusManager.updateStatus(videoId, Status.DOWNLOADING); 
+        statusManager.updateStatus(jobKey, Status.DOWNLOADING); 
         
-        ProcessBuilder ytDlpBuilder = new ProcessBuilder(
-            YTDLP_EXEC_PATH, 
-            "-f", "bestaudio",          
-            "--extract-audio",          
-            "--audio-format", "wav",    
-            "--output", tempInputFile,  
-            youtubeUrl
-        );
-
-        System.out.println("Début du téléchargement (WAV): " + videoId);
-        int ytDlpExitCode = runCommand(ytDlpBuilder);
-        
-        if (ytDlpExitCode != 0) {
-            throw new RuntimeException("yt-dlp failed with exit code: " + ytDlpExitCode);
+        // Source déjà en cache (relance, autre modèle, pré-téléchargement) : pas de réseau
+        if (sourceCache.restoreInto(videoId, Paths.get(tempInputFile))) {
+            System.out.println("Source audio trouvée dans le cache, téléchargement évité : " + videoId);
+        } else {
+            downloadSource(videoId, Paths.get(tempInputFile));
+            try {
+                sourceCache.store(videoId, Paths.get(tempInputFile));
+            } catch (IOException e) {
+                // Le cache n'est qu'une optimisation : le traitement continue
+                System.err.println("Could not cache source audio for " + videoId + ": " + e.getMessage());
+            }
         }
 
-        // --- ÉTAPE 3: SÉPARATION AVEC SPLEETER (TOLÉRANCE D'ERREUR) ---
-        statusManager.updateStatus(videoId, Status.SEPARATING); 
-        
-        // 🛑 Utilisation de cmd.exe /c pour la redirection de sortie et la syntaxe shell
-
-    String spleeterCommand = String.format(
-    "%s %s %s -p spleeter:2stems > NUL 2>&1", // Ajout de "> NUL 2>&1"
-    SPLEETER_EXEC_PATH, 
-    tempInputFile,                           
-    PERMANENT_TRACKS_DIR.toString()         
-    );
- 
-        ProcessBuilder spleeterBuilder = new ProcessBuilder(
-            "cmd.exe", 
-            "/c",
-            spleeterCommand
-        );
-        
-        System.out.println("Début de la séparation Spleeter...");
-        int spleeterExitCode = runCommand(spleeterBuilder);
-        
-        // Vérification critique après l'exécution de Spleeter
-        Path vocalsPath = videoTracksFolder.resolve("vocals.wav");        
-        if (spleeterExitCode != 0) {
-            // Tolère le code d'erreur 1 SI le travail a été fait (fichier 'vocals.wav' créé).
-            if (Files.exists(vocalsPath)) {
-                System.out.println("WARNING: Spleeter returned non-zero exit code (" + spleeterExitCode + 
-                                   "), but output file found. Assuming success.");
-            } else {
-                // Échec réel si code != 0 et pas de fichier trouvé
-                throw new RuntimeException("Spleeter failed (Code: " + spleeterExitCode + ") and no output file found.");
+        // --- ÉTAPE 2b: EMPREINTE ET DÉDUPLICATION ---
+        // Même enregistrement déjà séparé sous un autre videoId : on réutilise ses pistes
+        if (model == StemModel.DEFAULT) {
+            Optional<String> existingStems = linkToExistingStems(videoId, Paths.get(tempInputFile), leaseOwner);
+            if (existingStems.isPresent()) {
+                Files.deleteIfExists(Paths.get(tempInputFile));
+                Files.deleteIfExists(videoTracksFolder); // Dossier vide créé à l'étape 1
+                System.out.println("Doublon détecté : " + videoId + " réutilise les pistes de " + existingStems.get());
+                return;
             }
         }
 
+        // --- ÉTAPE 3: SÉPARATION (SPLEETER OU MOTEUR CONFIGURÉ) ---
+        statusManager.updateStatus(jobKey, Status.SEPARATING); 
+
+        // Le moteur écrit dans {sortie}/{nom du fichier}/ : les modèles autres que 2stems passent
+        // par un dossier temporaire avant d'être rangés dans leur sous-dossier
+        Path separationOutputDir = model == StemModel.DEFAULT ? PERMANENT_TRACKS_DIR : TEMP_DOWNLOAD_DIR.resolve(model.getName());
+        // Les séparations simultanées se partagent les cœurs : attente d'une place du gouverneur CPU
+        Path separationOutput;
+        try (CpuGovernor.Slot cpu = cpuGovernor.acquire()) {
+            separationOutput = separationEngine.separate(Paths.get(tempInputFile), separationOutputDir, model, cpu);
+            cpu.completed(audioDurationSeconds(Paths.get(tempInputFile)));
+        }
+
+        if (model != StemModel.DEFAULT) {
+            StorageQuotaManager.deleteRecursively(modelFolder); // Restes d'une tentative interrompue
+            moveFolder(separationOutput, modelFolder);
+        }
+
+        // --- ÉTAPE 3b: PISTES PAR DÉFAUT DÉRIVÉES ET ANALYSE (stemsJson) ---
+        if (!StemModel.DEFAULT.isCompleteIn(videoTracksFolder)) {
+            StemMixer.derive(modelFolder, StemModel.DEFAULT.folderIn(videoTracksFolder),
+                    StemModel.DEFAULT.derivationFrom(model).orElseThrow());
+            storeStemsAnalysis(videoId, videoTracksFolder, leaseOwner);
+        } else if (model == StemModel.DEFAULT) {
+            storeStemsAnalysis(videoId, videoTracksFolder, leaseOwner);
+        }
+
         // --- ÉTAPE 4: NETTOYAGE ET FINALISATION ---
         
-        // Suppression du fichier .wav temporaire
+        // Suppression du fichier .wav temporaire (une copie compressée reste dans le cache des sources)
         Files.deleteIfExists(Paths.get(tempInputFile));
         
-        System.out.println("Traitement terminé. Pistes stockées dans : " + videoTracksFolder);
+        System.out.println("Traitement terminé. Pistes stockées dans : " + modelFolder);
+    }
+
+    /**
+     * Déplace un dossier de pistes (sans sous-dossiers). Si le dossier des pistes est sur un autre volume
+     * (partage réseau), le renommage est impossible : les fichiers sont copiés puis la source supprimée.
+     */
+    private static void moveFolder(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target);
+        } catch (DirectoryNotEmptyException | AtomicMoveNotSupportedException e) {
+            Files.createDirectories(target);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(source)) {
+                for (Path file : files) {
+                    Files.copy(file, target.resolve(file.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            StorageQuotaManager.deleteRecursively(source);
+        }
     }
-}
\ No newline at end of file
+
+    // Durée de la source, pour le débit mesuré par le gouverneur (0 si l'en-tête est illisible)
+    private static double audioDurationSeconds(Path wavFile) {
+        try {
+            return WavHeader.read(wavFile).getDurationSeconds();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Télécharge l'audio d'une vidéo au format WAV avec le téléchargeur configuré.
+     * Utilisé par le pipeline et par le pré-téléchargement spéculatif.
+     */
+    void downloadSource(String videoId, Path targetWav) throws IOException, InterruptedException {
+        downloader.download(videoId, targetWav);
+    }
+
+    /**
+     * Calcule l'empreinte du fichier téléchargé et l'enregistre sur l'entrée.
+     * Si une autre vidéo COMPLETED a le même contenu, l'entrée est liée à ses pistes.
+     * @return Le videoId propriétaire des pistes réutilisées, ou vide s'il faut séparer.
+     */
+    private Optional<String> linkToExistingStems(String videoId, Path sourceWav, String leaseOwner) {
+        String contentHash;
+        try {
+            contentHash = fingerprinter.fingerprint(sourceWav);
+        } catch (IOException e) {
+            // L'empreinte n'est qu'une optimisation : en cas d'échec on sépare normalement
+            System.err.println("Fingerprint failed for " + videoId + ": " + e.getMessage());
+            return Optional.empty();
+        }
+
+        // Choix du dossier et liaison sous le verrou de l'éviction : le dossier retenu ne peut pas disparaître entre-temps
+        return storageQuotaManager.withFolderLock(() -> {
+            Optional<String> owner = videoRepository.findByContentHashAndStatus(contentHash, Status.COMPLETED.name()).stream()
+                    .map(VideoEntry::resolveStemsFolderId)
+                    .filter(id -> !id.equals(videoId))
+                    .filter(id -> {
+                        String[] files = PERMANENT_TRACKS_DIR.resolve(id).toFile().list();
+                        return files != null && files.length > 0;
+                    })
+                    .findFirst();
+
+            // Les pistes partagées ont la même analyse : on la recopie plutôt que de la recalculer
+            String ownerStemsJson = owner.flatMap(videoRepository::findById).map(VideoEntry::getStemsJson).orElse(null);
+            videoRepository.findById(videoId).ifPresent(entry -> {
+                entry.setContentHash(contentHash);
+                entry.setStemsVideoId(owner.orElse(null));
+                if (owner.isPresent()) {
+                    entry.setStemsJson(ownerStemsJson);
+                }
+                if (leaseOwner == null) {
+                    videoRepository.save(entry);
+                } else {
+                    checkLeaseHeld(videoRepository.storeLeasedStems(videoId, leaseOwner, entry.getContentHash(),
+                            entry.getStemsVideoId(), entry.getStemsJson()), videoId);
+                }
+            });
+            return owner;
+        });
+    }
+
+    /**
+     * Analyse les pistes produites et enregistre le résultat dans stemsJson.
+     * Un échec d'analyse n'invalide pas la séparation : stemsJson reste simplement vide.
+     */
+    private void storeStemsAnalysis(String videoId, Path stemsFolder, String leaseOwner) {
+        try {
+            long start = System.nanoTime();
+            String stemsJson = analysisService.analyzeStemsFolder(stemsFolder);
+            videoRepository.findById(videoId).ifPresent(entry -> {
+                entry.setStemsJson(stemsJson);
+                if (leaseOwner == null) {
+                    videoRepository.save(entry);
+                } else {
+                    checkLeaseHeld(videoRepository.storeLeasedStems(videoId, leaseOwner, entry.getContentHash(),
+                            entry.getStemsVideoId(), stemsJson), videoId);
+                }
+            });
+            System.out.println("Analyse des pistes terminée pour " + videoId + " en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("Stems analysis failed for " + videoId + ": " + e.getMessage());
+        }
+    }
+
+    // Écriture sous bail refusée : un autre worker a repris le traitement, celui-ci s'arrête sans rien écrire de plus
+    private static void checkLeaseHeld(int updated, String videoId) {
+        if (updated == 0) {
+            throw new IllegalStateException("Bail perdu sur " + videoId + " : traitement repris par un autre worker");
+        }
+    }
+}
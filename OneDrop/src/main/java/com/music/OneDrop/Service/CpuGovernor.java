@@ -0,0 +1,386 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Répartition des cœurs entre les séparations simultanées.
+ * Chaque processus TensorFlow se croit seul et ouvre autant de threads que de cœurs : plusieurs
+ * séparations en parallèle se disputent alors la machine et vont moins vite qu'en série.
+ * Le gouverneur borne le nombre de séparations simultanées, attribue à chacune une part des cœurs
+ * (variables OMP/TF/MKL du processus enfant, et épinglage taskset en option) et, en mode adaptatif,
+ * ajuste la borne au débit mesuré (secondes d'audio séparées par seconde) par une montée de gradient :
+ * la borne avance d'un pas tant que le débit progresse, et revient en arrière quand il baisse.
+ *
+ * Verrou ReentrantLock plutôt que synchronized : l'attente d'une place n'épingle pas un thread virtuel.
+ */
+@Service
+public class CpuGovernor {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+    // Baisse de débit tolérée avant de revenir en arrière (bruit de mesure d'une fenêtre à l'autre)
+    private static final double TOLERANCE = 0.05;
+
+    /**
+     * Place de séparation : les cœurs attribués et le nombre de threads de calcul du processus enfant.
+     * À fermer une fois la séparation finie (try-with-resources) ; completed() la compte dans le débit.
+     */
+    public final class Slot implements AutoCloseable {
+        private final int[] cores;
+        private final int threads;
+        private double audioSeconds = -1;
+        private boolean closed;
+
+        private Slot(int[] cores, int threads) {
+            this.cores = cores;
+            this.threads = threads;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * Variables d'environnement limitant les threads de calcul du processus enfant.
+         */
+        public Map<String, String> environment() {
+            Map<String, String> env = new LinkedHashMap<>();
+            String intraOp = String.valueOf(threads);
+            env.put("OMP_NUM_THREADS", intraOp);
+            env.put("MKL_NUM_THREADS", intraOp);
+            env.put("OPENBLAS_NUM_THREADS", intraOp);
+            env.put("TF_NUM_INTRAOP_THREADS", intraOp);
+            // Le graphe de Spleeter a peu de branches parallèles : deux threads inter-op suffisent
+            env.put("TF_NUM_INTEROP_THREADS", String.valueOf(Math.min(2, threads)));
+            return env;
+        }
+
+        /**
+         * La commande, préfixée de taskset si l'épinglage des cœurs est actif.
+         */
+        public List<String> wrapCommand(List<String> command) {
+            if (tasksetExecutable == null) {
+                return command;
+            }
+            List<String> pinned = new ArrayList<>(command.size() + 3);
+            pinned.add(tasksetExecutable);
+            pinned.add("-c");
+            pinned.add(cpuList(cores));
+            pinned.addAll(command);
+            return pinned;
+        }
+
+        /**
+         * Séparation réussie de tant de secondes d'audio (les échecs ne comptent pas dans le débit).
+         */
+        public void completed(double separatedAudioSeconds) {
+            this.audioSeconds = separatedAudioSeconds;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+
+    private final int[] cpuIds;
+    private final int minJobs;
+    private final int maxJobs;
+    private final int fixedThreadsPerJob;
+    private final boolean adaptive;
+    private final int windowJobs;
+    private final String tasksetExecutable;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final int[] coreLoad;
+    private int limit;
+    private int running;
+    private int waiting;
+
+    // Fenêtre de mesure en cours (pour la borne actuelle)
+    private long windowStartNanos;
+    private int windowCompleted;
+    private double windowAudioSeconds;
+    private boolean windowSaturated = true;
+    // Débit mesuré par borne (moyenne glissante), pas de la montée de gradient
+    private final Map<Integer, Double> throughputByLimit = new TreeMap<>();
+    private int previousLimit;
+    private int direction = 1;
+    private long totalCompleted;
+    private double totalAudioSeconds;
+
+    public CpuGovernor(@Value("${onedrop.cpu.cores:0}") int cores,
+                       @Value("${onedrop.cpu.initial-jobs:0}") int initialJobs,
+                       @Value("${onedrop.cpu.min-jobs:1}") int minJobs,
+                       @Value("${onedrop.cpu.max-jobs:0}") int maxJobs,
+                       @Value("${onedrop.cpu.threads-per-job:0}") int threadsPerJob,
+                       @Value("${onedrop.cpu.adaptive:true}") boolean adaptive,
+                       @Value("${onedrop.cpu.adapt-window-jobs:4}") int windowJobs,
+                       @Value("${onedrop.cpu.pin-cores:false}") boolean pinCores,
+                       @Value("${onedrop.cpu.taskset:}") String taskset) {
+        int[] allowed = allowedCpuIds();
+        int count = cores > 0 ? Math.min(cores, allowed.length) : allowed.length;
+        this.cpuIds = Arrays.copyOf(allowed, count);
+        this.coreLoad = new int[count];
+        this.minJobs = Math.max(1, minJobs);
+        this.maxJobs = Math.max(this.minJobs, maxJobs > 0 ? maxJobs : count);
+        this.fixedThreadsPerJob = threadsPerJob;
+        this.adaptive = adaptive;
+        this.windowJobs = Math.max(1, windowJobs);
+        this.limit = clamp(initialJobs > 0 ? initialJobs : count / 4);
+        this.previousLimit = limit;
+        this.tasksetExecutable = pinCores ? resolveTaskset(taskset) : null;
+        System.out.println("CPU governor: " + count + " cores, " + limit + " concurrent separation(s) ("
+                + (adaptive ? "adaptive " + this.minJobs + "-" + this.maxJobs : "fixed") + "), "
+                + threadsFor(limit) + " threads each" + (tasksetExecutable != null ? ", pinned with taskset" : ""));
+    }
+
+    /**
+     * Attend une place de séparation.
+     */
+    public Slot acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            waiting++;
+            try {
+                while (running >= limit) {
+                    slotFreed.await();
+                }
+            } finally {
+                waiting--;
+            }
+            if (running == 0 && windowCompleted == 0) {
+                windowStartNanos = System.nanoTime(); // Reprise après une période sans travail
+            }
+            running++;
+            int threads = threadsFor(limit);
+            return new Slot(reserveCores(Math.min(threads, cpuIds.length)), threads);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Slot slot) {
+        lock.lock();
+        try {
+            if (slot.closed) {
+                return;
+            }
+            slot.closed = true;
+            running--;
+            for (int core : slot.cores) {
+                coreLoad[core]--;
+            }
+            if (slot.audioSeconds >= 0) {
+                totalCompleted++;
+                totalAudioSeconds += slot.audioSeconds;
+                recordCompletion(slot);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordCompletion(Slot slot) {
+        if (!adaptive) {
+            return;
+        }
+        // Une place libérée sans personne pour la reprendre : la borne n'était pas le facteur limitant,
+        // la fenêtre ne dit rien du débit de cette borne
+        if (waiting == 0) {
+            windowSaturated = false;
+        }
+        windowCompleted++;
+        windowAudioSeconds += slot.audioSeconds;
+        if (windowCompleted < Math.max(windowJobs, 2 * limit)) {
+            return;
+        }
+        double elapsedSeconds = (System.nanoTime() - windowStartNanos) / 1e9;
+        if (windowSaturated && elapsedSeconds > 0) {
+            adjustLimit(windowAudioSeconds / elapsedSeconds);
+        }
+        windowStartNanos = System.nanoTime();
+        windowCompleted = 0;
+        windowAudioSeconds = 0;
+        windowSaturated = true;
+    }
+
+    /**
+     * Un pas de la montée de gradient, pour le débit mesuré sur la fenêtre écoulée à la borne actuelle.
+     */
+    void adjustLimit(double throughput) {
+        lock.lock();
+        try {
+            throughputByLimit.merge(limit, throughput, (old, measured) -> (old + measured) / 2);
+            Double previous = previousLimit != limit ? throughputByLimit.get(previousLimit) : null;
+            int next;
+            if (previous != null && throughputByLimit.get(limit) < previous * (1 - TOLERANCE)) {
+                // Le dernier pas a fait baisser le débit : retour à la borne précédente, puis exploration de l'autre côté
+                next = previousLimit;
+                direction = -direction;
+            } else {
+                next = clamp(limit + direction);
+                if (next == limit) {
+                    // En butée : on y reste tant qu'elle fait au moins aussi bien que sa voisine
+                    int neighbour = clamp(limit - direction);
+                    Double neighbourThroughput = throughputByLimit.get(neighbour);
+                    if (neighbourThroughput == null || throughputByLimit.get(limit) < neighbourThroughput * (1 - TOLERANCE)) {
+                        direction = -direction;
+                        next = neighbour;
+                    }
+                }
+            }
+            if (next != limit) {
+                System.out.printf(Locale.ROOT, "CPU governor: %.2f audio s/s with %d concurrent separation(s), trying %d%n",
+                        throughput, limit, next);
+                previousLimit = limit;
+                limit = next;
+                slotFreed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int clamp(int jobs) {
+        return Math.max(minJobs, Math.min(maxJobs, jobs));
+    }
+
+    private int threadsFor(int concurrentJobs) {
+        return fixedThreadsPerJob > 0 ? fixedThreadsPerJob : Math.max(1, cpuIds.length / concurrentJobs);
+    }
+
+    /**
+     * Les cœurs les moins chargés : après un changement de borne, les places en cours gardent leurs cœurs.
+     * @return Les index des cœurs réservés (dans cpuIds).
+     */
+    private int[] reserveCores(int count) {
+        Integer[] order = new Integer[coreLoad.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(coreLoad[a], coreLoad[b]));
+        int[] reserved = new int[count];
+        for (int i = 0; i < count; i++) {
+            reserved[i] = order[i];
+            coreLoad[order[i]]++;
+        }
+        Arrays.sort(reserved);
+        return reserved;
+    }
+
+    // Index dans cpuIds -> numéros de CPU, au format de taskset -c
+    private String cpuList(int[] cores) {
+        return Arrays.stream(cores).mapToObj(core -> String.valueOf(cpuIds[core])).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Numéros des CPU accordés au processus : Cpus_allowed_list sous Linux (conteneur, cgroup, taskset
+     * du lanceur), sinon 0..n-1.
+     */
+    private static int[] allowedCpuIds() {
+        int available = Runtime.getRuntime().availableProcessors();
+        Path status = Paths.get("/proc/self/status");
+        if (Files.isReadable(status)) {
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("Cpus_allowed_list:")) {
+                        int[] ids = parseCpuList(line.substring(line.indexOf(':') + 1).trim());
+                        if (ids.length > 0) {
+                            // availableProcessors tient aussi compte du quota CPU du conteneur
+                            return Arrays.copyOf(ids, Math.min(ids.length, available));
+                        }
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not read the allowed CPU list: " + e.getMessage());
+            }
+        }
+        int[] ids = new int[available];
+        Arrays.setAll(ids, i -> i);
+        return ids;
+    }
+
+    // Format "0-3,8,10-11"
+    static int[] parseCpuList(String list) {
+        List<Integer> ids = new ArrayList<>();
+        for (String range : list.split(",")) {
+            if (range.isBlank()) {
+                continue;
+            }
+            String[] bounds = range.trim().split("-");
+            int first = Integer.parseInt(bounds[0]);
+            int last = bounds.length > 1 ? Integer.parseInt(bounds[1]) : first;
+            for (int id = first; id <= last; id++) {
+                ids.add(id);
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String resolveTaskset(String configured) {
+        if (WINDOWS) {
+            System.err.println("onedrop.cpu.pin-cores is ignored on Windows (no taskset); thread limits still apply");
+            return null;
+        }
+        String executable = ExternalCommand.resolveTool(configured, "taskset");
+        if (new File(executable).isAbsolute() ? Files.isExecutable(Paths.get(executable)) : onPath(executable)) {
+            return executable;
+        }
+        System.err.println("onedrop.cpu.pin-cores is set but taskset was not found; separations are not pinned");
+        return null;
+    }
+
+    private static boolean onPath(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        return Arrays.stream(path.split(File.pathSeparator))
+                .anyMatch(dir -> !dir.isBlank() && Files.isExecutable(Paths.get(dir, name)));
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("cores", cpuIds.length);
+            stats.put("cpuIds", Arrays.stream(cpuIds).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+            stats.put("adaptive", adaptive);
+            stats.put("concurrentLimit", limit);
+            stats.put("minJobs", minJobs);
+            stats.put("maxJobs", maxJobs);
+            stats.put("threadsPerJob", threadsFor(limit));
+            stats.put("pinned", tasksetExecutable != null);
+            stats.put("running", running);
+            stats.put("waiting", waiting);
+            stats.put("completedSeparations", totalCompleted);
+            stats.put("separatedAudioMinutes", Math.round(totalAudioSeconds / 60));
+            Map<String, Object> measured = new LinkedHashMap<>();
+            throughputByLimit.forEach((jobs, audioSecondsPerSecond) -> measured.put(String.valueOf(jobs),
+                    Math.round(audioSecondsPerSecond * 100) / 100.0));
+            stats.put("audioSecondsPerSecondByLimit", measured);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.music.OneDrop.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Lancement direct des outils externes (yt-dlp, Spleeter) : pas de shell intermédiaire,
+ * chaque argument est transmis tel quel (espaces et caractères spéciaux des chemins compris).
+ */
+final class ExternalCommand {
+
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private ExternalCommand() {}
+
+    /**
+     * Exécute la commande et retourne son code de sortie.
+     * La sortie standard est ignorée (sans quoi un outil bavard bloquerait sur un tube plein) ;
+     * la sortie d'erreur est journalisée ligne à ligne par une tâche de 'supervisor'.
+     */
+    static int run(List<String> command, long timeoutMinutes, Executor supervisor) throws IOException, InterruptedException {
+        return run(command, Map.of(), timeoutMinutes, supervisor);
+    }
+
+    /**
+     * Idem, avec des variables d'environnement ajoutées à celles de l'application (limites de threads).
+     */
+    static int run(List<String> command, Map<String, String> environment, long timeoutMinutes, Executor supervisor)
+            throws IOException, InterruptedException {
+        System.out.println("Attempting to run command: " + String.join(" ", command));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().putAll(environment);
+        Process process = builder.start();
+
+        // Lire et loguer la sortie d'erreur (pour les messages TensorFlow)
+        supervisor.execute(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    System.err.println("EXTERNAL ERR: " + line);
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading process error stream: " + e.getMessage());
+            }
+        });
+
+        // onExit() plutôt que waitFor(timeout) : ce dernier attend dans un bloc synchronized,
+        // ce qui épinglerait le thread porteur si l'appelant est un thread virtuel (Java 21)
+        try {
+            process.onExit().get(timeoutMinutes, TimeUnit.MINUTES);
+        } catch (TimeoutException e) {
+            process.destroyForcibly();
+            throw new IOException("External command timed out (exceeded " + timeoutMinutes + " minutes): " + command.get(0));
+        } catch (ExecutionException e) {
+            throw new IOException("Could not wait for " + command.get(0), e.getCause());
+        } catch (InterruptedException e) {
+            // Arrêt de l'application ou d'un worker : l'outil ne doit pas continuer seul
+            process.destroyForcibly();
+            throw e;
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * Threads des lecteurs de sortie d'erreur : virtuels si le mode est demandé et que la JVM
+     * les propose (Java 21+), sinon threads démons ordinaires.
+     */
+    static Executor supervisorExecutor(boolean virtualThreads) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("external-stderr-");
+        executor.setDaemon(true);
+        executor.setVirtualThreads(virtualThreads && Runtime.version().feature() >= 21);
+        return executor;
+    }
+
+    /**
+     * Chemin de l'exécutable d'un outil : la valeur configurée si elle est renseignée, sinon
+     * tools/{outil}[.exe] sous le répertoire de lancement s'il existe, sinon le nom seul (recherché dans le PATH).
+     */
+    static String resolveTool(String configured, String toolName) {
+        if (configured != null && !configured.isBlank()) {
+            return configured.trim();
+        }
+        Path bundled = Paths.get(System.getProperty("user.dir"), "tools", WINDOWS ? toolName + ".exe" : toolName)
+                .toAbsolutePath();
+        return Files.isRegularFile(bundled) ? bundled.toString() : toolName;
+    }
+}
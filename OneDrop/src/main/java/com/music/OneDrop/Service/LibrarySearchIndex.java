@@ -0,0 +1,273 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire pour la recherche dans la bibliothèque (vidéos COMPLETED ou EVICTED).
+ * Les textes sont découpés en tokens, sans accents et en minuscules ; chaque token
+ * de la requête peut correspondre exactement (score plein) ou comme préfixe (score réduit).
+ */
+@Component
+public class LibrarySearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Poids des correspondances (un token exact compte plus qu'un préfixe)
+    private static final int EXACT_MATCH_SCORE = 4;
+    private static final int PREFIX_MATCH_SCORE = 1;
+
+    // Document indexé : tokens par champ pondéré + date utilisée pour départager les scores
+    private record IndexedDocument(Map<String, Integer> tokenWeights, LocalDateTime processedAt) {}
+
+    private record ScoredHit(String videoId, int score, LocalDateTime processedAt) {}
+
+    private static final Comparator<ScoredHit> RANKING = Comparator
+            .comparingInt(ScoredHit::score)
+            .thenComparing(ScoredHit::processedAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final VideoRepository videoRepository;
+
+    // token -> (videoId -> poids du champ). TreeMap pour les recherches par préfixe (subMap).
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final Map<String, IndexedDocument> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public LibrarySearchIndex(VideoRepository videoRepository) {
+        this.videoRepository = videoRepository;
+    }
+
+    /**
+     * Construit l'index au démarrage à partir de toutes les entrées terminées de la base.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<VideoEntry> entries = videoRepository.findAll();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (VideoEntry entry : entries) {
+                if (isInLibrary(entry)) {
+                    addDocument(entry);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        System.out.println("Library search index built: " + documents.size() + " entries in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Ajoute ou remplace une entrée (appelé quand un traitement se termine).
+     * Les entrées qui ne font pas partie de la bibliothèque sont retirées de l'index.
+     */
+    public void put(VideoEntry entry) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(entry.getVideoId());
+            if (isInLibrary(entry)) {
+                addDocument(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String videoId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(videoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche les vidéos correspondant à tous les tokens de la requête (ET logique).
+     * @param query Texte saisi par l'utilisateur.
+     * @param limit Nombre maximal de résultats (top-k).
+     * @return Les videoId classés du plus pertinent au moins pertinent.
+     */
+    public List<String> search(String query, int limit) {
+        List<String> queryTokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Le token le plus sélectif produit les candidats ; les autres ne font que les filtrer
+            String seed = mostSelectiveToken(queryTokens);
+            Map<String, Integer> scores = scoreToken(seed);
+            for (String token : queryTokens) {
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                if (!token.equals(seed)) {
+                    scores = filterCandidates(scores, token);
+                }
+            }
+
+            // Top-k : tas minimal de taille 'limit'
+            PriorityQueue<ScoredHit> topK = new PriorityQueue<>(limit + 1, RANKING);
+            for (Map.Entry<String, Integer> hit : scores.entrySet()) {
+                topK.offer(new ScoredHit(hit.getKey(), hit.getValue(), documents.get(hit.getKey()).processedAt()));
+                if (topK.size() > limit) {
+                    topK.poll();
+                }
+            }
+
+            List<String> ranked = new ArrayList<>(topK.size());
+            while (!topK.isEmpty()) {
+                ranked.add(topK.poll().videoId());
+            }
+            Collections.reverse(ranked);
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un token présent tel quel dans l'index avec peu de documents est le meilleur point de départ ;
+    // à défaut, le plus long (son préfixe couvre le moins de termes)
+    private String mostSelectiveToken(List<String> queryTokens) {
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (String token : queryTokens) {
+            Map<String, Integer> exact = postings.get(token);
+            if (exact != null && exact.size() < bestSize) {
+                best = token;
+                bestSize = exact.size();
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        return queryTokens.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+    }
+
+    // Garde les candidats dont un token commence par 'token' et cumule le score correspondant
+    private Map<String, Integer> filterCandidates(Map<String, Integer> candidates, String token) {
+        Map<String, Integer> kept = new HashMap<>();
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            int best = 0;
+            for (Map.Entry<String, Integer> tokenWeight : documents.get(candidate.getKey()).tokenWeights().entrySet()) {
+                if (tokenWeight.getKey().startsWith(token)) {
+                    int matchScore = tokenWeight.getKey().length() == token.length() ? EXACT_MATCH_SCORE : PREFIX_MATCH_SCORE;
+                    best = Math.max(best, matchScore * tokenWeight.getValue());
+                }
+            }
+            if (best > 0) {
+                kept.put(candidate.getKey(), candidate.getValue() + best);
+            }
+        }
+        return kept;
+    }
+
+    // Score d'un token de requête : correspondance exacte, puis tous les tokens indexés dont il est le préfixe
+    private Map<String, Integer> scoreToken(String token) {
+        Map<String, Integer> tokenScores = new HashMap<>();
+        for (Map.Entry<String, Map<String, Integer>> term : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int matchScore = term.getKey().length() == token.length() ? EXACT_MATCH_SCORE : PREFIX_MATCH_SCORE;
+            for (Map.Entry<String, Integer> posting : term.getValue().entrySet()) {
+                tokenScores.merge(posting.getKey(), matchScore * posting.getValue(), Math::max);
+            }
+        }
+        return tokenScores;
+    }
+
+    // Les pistes évincées restent visibles : elles sont re-séparées à la demande
+    private static boolean isInLibrary(VideoEntry entry) {
+        return Status.COMPLETED.name().equals(entry.getStatus()) || Status.EVICTED.name().equals(entry.getStatus());
+    }
+
+    private void addDocument(VideoEntry entry) {
+        Map<String, Integer> tokenWeights = new HashMap<>();
+        for (Map.Entry<String, Integer> field : indexedFields(entry).entrySet()) {
+            for (String token : tokenize(field.getKey())) {
+                tokenWeights.merge(token, field.getValue(), Math::max);
+            }
+        }
+        documents.put(entry.getVideoId(), new IndexedDocument(tokenWeights, entry.getProcessedAt()));
+        for (Map.Entry<String, Integer> tokenWeight : tokenWeights.entrySet()) {
+            postings.computeIfAbsent(tokenWeight.getKey(), t -> new HashMap<>())
+                    .put(entry.getVideoId(), tokenWeight.getValue());
+        }
+    }
+
+    private void removeDocument(String videoId) {
+        IndexedDocument previous = documents.remove(videoId);
+        if (previous == null) {
+            return;
+        }
+        for (String token : previous.tokenWeights().keySet()) {
+            Map<String, Integer> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(videoId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    // Champs indexés et leur poids (texte -> poids). Les métadonnées d'artiste s'ajouteront ici.
+    private Map<String, Integer> indexedFields(VideoEntry entry) {
+        Map<String, Integer> fields = new HashMap<>();
+        if (entry.getVideoTitle() != null) {
+            fields.merge(entry.getVideoTitle(), 2, Math::max);
+        }
+        return fields;
+    }
+
+    /**
+     * Normalise et découpe un texte : minuscules, accents retirés, séparation sur tout caractère
+     * qui n'est ni une lettre ni un chiffre.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,31 @@
+package com.music.OneDrop.Service;
+
+import java.util.Locale;
+
+/**
+ * Rôle du processus (onedrop.role) :
+ * STANDALONE (défaut) sert l'API et sépare lui-même ; API sert l'API et met les traitements en file
+ * dans la base partagée ; WORKER ne sert rien et exécute les traitements de la file (voir SeparationWorker).
+ */
+public enum NodeRole {
+    STANDALONE,
+    API,
+    WORKER;
+
+    /**
+     * @throws IllegalArgumentException si le nom ne correspond à aucun rôle.
+     */
+    public static NodeRole fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return STANDALONE;
+        }
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Les traitements sont confiés aux workers via la base plutôt qu'exécutés dans ce processus.
+     */
+    public boolean dispatchesToWorkers() {
+        return this == API;
+    }
+}
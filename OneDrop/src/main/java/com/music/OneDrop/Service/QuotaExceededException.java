@@ -0,0 +1,21 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+
+/**
+ * Levée quand un appel à l'API YouTube est refusé par le limiteur de quota local
+ * (ou quand YouTube signale lui-même le quota épuisé).
+ */
+public class QuotaExceededException extends IOException {
+
+    private final long retryAfterSeconds;
+
+    public QuotaExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,29 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Sépare un fichier WAV en pistes (une par piste du modèle).
+ * Implémentation choisie par onedrop.engine.separator : spleeter (défaut) ou synthetic.
+ */
+public interface SeparationEngine {
+
+    /**
+     * Produit les pistes du modèle dans {outputDir}/{nom du fichier d'entrée sans extension}/{piste}.wav,
+     * la disposition de Spleeter sur laquelle le pipeline s'appuie.
+     * @param cpu Place attribuée par le CpuGovernor : threads de calcul et cœurs à respecter.
+     * @return Le dossier contenant les pistes.
+     * @throws IOException si aucune piste exploitable n'a été produite.
+     */
+    Path separate(Path inputWav, Path outputDir, StemModel model, CpuGovernor.Slot cpu) throws IOException, InterruptedException;
+
+    /**
+     * Dossier de sortie d'un fichier d'entrée, selon la disposition ci-dessus.
+     */
+    static Path stemsFolderFor(Path inputWav, Path outputDir) {
+        String fileName = inputWav.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return outputDir.resolve(dot > 0 ? fileName.substring(0, dot) : fileName);
+    }
+}
@@ -0,0 +1,195 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point d'entrée des traitements de séparation.
+ * En mode standalone, le traitement part dans le pipeline @Async local ; en mode api, il est mis en file
+ * dans la base partagée et exécuté par un SeparationWorker. L'état publié par les workers (colonnes job*)
+ * est recopié périodiquement dans le TaskStatusManager local, que les endpoints de statut continuent de lire.
+ */
+@Service
+public class SeparationJobQueue {
+
+    static final List<String> ACTIVE_STATUSES = List.of(
+            Status.PENDING.name(), Status.DOWNLOADING.name(), Status.SEPARATING.name());
+
+    private final AudioProcessorService audioProcessorService;
+    private final VideoRepository videoRepository;
+    private final TaskStatusManager statusManager;
+    private final LibrarySearchIndex searchIndex;
+    private final StorageQuotaManager storageQuotaManager;
+    private final NodeRole role;
+    private final long syncIntervalMs;
+
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-status-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SeparationJobQueue(AudioProcessorService audioProcessorService, VideoRepository videoRepository,
+                              TaskStatusManager statusManager, LibrarySearchIndex searchIndex,
+                              StorageQuotaManager storageQuotaManager,
+                              @Value("${onedrop.role:standalone}") String role,
+                              @Value("${onedrop.worker.sync-interval-ms:2000}") long syncIntervalMs) {
+        this.audioProcessorService = audioProcessorService;
+        this.videoRepository = videoRepository;
+        this.statusManager = statusManager;
+        this.searchIndex = searchIndex;
+        this.storageQuotaManager = storageQuotaManager;
+        this.role = NodeRole.fromName(role);
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    /**
+     * Le traitement de cette vidéo est en file ou détenu par un worker.
+     */
+    static boolean isActive(VideoEntry entry) {
+        return entry.getJobStatus() != null && ACTIVE_STATUSES.contains(entry.getJobStatus());
+    }
+
+    /**
+     * Démarre le traitement d'une vidéo (POST /api/audio/process, import d'album) : déclare la tâche,
+     * crée ou met à jour l'entrée de la vidéo, puis lance ou met en file le traitement.
+     * @return false si un traitement est déjà en cours pour cette vidéo (rien n'est modifié).
+     */
+    public boolean startJob(String videoId, String videoTitle, String duration, StemModel model) {
+        // Tâche déclarée avant de lire l'entrée : le quota disque n'évince plus ce dossier,
+        // et une éviction déjà commencée est terminée (statut EVICTED visible ci-dessous)
+        if (!storageQuotaManager.tryMarkStarted(videoId, model)) {
+            return false;
+        }
+        try {
+            VideoEntry entry = videoRepository.findById(videoId).orElse(null);
+            if (entry == null) {
+                entry = new VideoEntry();
+                entry.setVideoId(videoId);
+            }
+            // Modèle supplémentaire pour une vidéo terminée : elle reste disponible pendant le traitement.
+            // Sinon (nouveau traitement ou relance), l'entrée repart en attente.
+            if (model == StemModel.DEFAULT || !Status.COMPLETED.name().equals(entry.getStatus())) {
+                entry.setStatus(Status.PENDING.name());
+                entry.setVideoTitle(videoTitle);
+                entry.setDuration(duration);
+                entry.setProcessedAt(null); // Effacer la date de complétion pour un nouveau run
+            }
+            videoRepository.save(entry);
+        } catch (RuntimeException e) {
+            statusManager.updateStatus(model.jobKey(videoId), Status.FAILED);
+            throw e;
+        }
+        submit(videoId, model);
+        return true;
+    }
+
+    /**
+     * Lance (standalone) ou met en file (api) le traitement. L'entrée de la vidéo doit déjà exister en base,
+     * et le statut PENDING de la tâche avoir été posé par l'appelant.
+     */
+    public void submit(String videoId, StemModel model) {
+        if (!role.dispatchesToWorkers()) {
+            audioProcessorService.startAudioProcessing(videoId, model);
+            return;
+        }
+        int queued = videoRepository.queueJob(videoId, model.getName(), Status.PENDING.name());
+        if (queued == 0) {
+            System.err.println("Cannot queue " + model.jobKey(videoId) + ": no library entry");
+            statusManager.updateStatus(model.jobKey(videoId), Status.FAILED);
+            return;
+        }
+        System.out.println("Queued " + model.jobKey(videoId) + " for the separation workers");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startStatusSync() {
+        if (!role.dispatchesToWorkers()) {
+            return;
+        }
+        // Redémarrage du nœud API : les traitements encore en file ou sous bail redeviennent visibles
+        for (VideoEntry entry : videoRepository.findByJobStatusIn(ACTIVE_STATUSES)) {
+            try {
+                statusManager.updateStatus(StemModel.fromName(entry.getJobModel()).jobKey(entry.getVideoId()),
+                        Status.valueOf(entry.getJobStatus()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring queued job with unknown model for " + entry.getVideoId() + ": " + e.getMessage());
+            }
+        }
+        syncExecutor.scheduleWithFixedDelay(this::syncStatuses, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("Separation jobs dispatched to workers; status sync every " + syncIntervalMs + " ms");
+    }
+
+    @PreDestroy
+    void shutdownSync() {
+        syncExecutor.shutdownNow();
+    }
+
+    /**
+     * Recopie l'état des traitements suivis localement depuis la base, et applique localement
+     * les effets d'une fin de traitement (index de recherche, quota disque).
+     */
+    private void syncStatuses() {
+        try {
+            // Clé de tâche -> videoId, pour les seules tâches encore actives de ce côté
+            Map<String, String> activeKeys = new HashMap<>();
+            for (String key : statusManager.getActiveTaskKeys()) {
+                int slash = key.indexOf('/');
+                activeKeys.put(key, slash < 0 ? key : key.substring(0, slash));
+            }
+            if (activeKeys.isEmpty()) {
+                return;
+            }
+            for (VideoEntry entry : videoRepository.findAllById(activeKeys.values().stream().distinct().toList())) {
+                if (entry.getJobStatus() == null) {
+                    continue;
+                }
+                StemModel model;
+                try {
+                    model = StemModel.fromName(entry.getJobModel());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                String jobKey = model.jobKey(entry.getVideoId());
+                if (!activeKeys.containsKey(jobKey)) {
+                    continue; // Traitement d'un autre modèle, suivi sous une autre clé
+                }
+                applyStatus(entry, model, jobKey, Status.valueOf(entry.getJobStatus()));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Worker status sync failed: " + e.getMessage());
+        }
+    }
+
+    private void applyStatus(VideoEntry entry, StemModel model, String jobKey, Status status) {
+        if (status == Status.COMPLETED) {
+            statusManager.updateStatus(jobKey, Status.COMPLETED);
+            if (model != StemModel.DEFAULT) {
+                statusManager.updateStatus(entry.getVideoId(), Status.COMPLETED);
+            }
+            searchIndex.put(entry);
+            // Le worker ne tient pas le quota : le dossier partagé est comptabilisé ici
+            storageQuotaManager.recordStored(entry.resolveStemsFolderId());
+        } else if (status == Status.FAILED) {
+            statusManager.updateStatus(jobKey, Status.FAILED);
+            if (Status.FAILED.name().equals(entry.getStatus())) {
+                searchIndex.remove(entry.getVideoId());
+            }
+        } else if (status != statusManager.getStatus(jobKey)) {
+            statusManager.updateStatus(jobKey, status);
+        }
+    }
+}
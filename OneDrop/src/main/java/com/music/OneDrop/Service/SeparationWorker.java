@@ -0,0 +1,289 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nœud de séparation (onedrop.role=worker) : prend les traitements en file dans la base partagée
+ * et les exécute avec le pipeline local (AudioProcessorService.runJob).
+ *
+ * Chaque prise est un bail : un UPDATE conditionnel qui ne réussit que si personne ne détient de bail
+ * valide, prolongé par un battement de cœur tant que le traitement tourne. Un worker arrêté ou planté
+ * cesse de le prolonger ; à expiration, un autre worker reprend le traitement, dans la limite de
+ * onedrop.worker.max-attempts prises.
+ *
+ * Un worker qui ne parvient plus à prolonger son bail (repris par un autre, ou base injoignable jusqu'à
+ * l'expiration) interrompt le traitement : deux nœuds n'écrivent jamais le même traitement. Ses écritures
+ * sur l'entrée sont de toute façon conditionnées au bail (AudioProcessorService.runJob avec leaseOwner).
+ */
+@Service
+public class SeparationWorker {
+
+    private static final int CLAIM_BATCH = 8;
+
+    private final AudioProcessorService audioProcessorService;
+    private final VideoRepository videoRepository;
+    private final TaskStatusManager statusManager;
+    private final NodeRole role;
+    private final String workerId;
+    private final int concurrency;
+    private final long pollIntervalMs;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+
+    /**
+     * Traitement dont ce worker détient le bail, avec le thread qui l'exécute (interrompu si le bail est perdu).
+     */
+    private static final class HeldJob {
+        final StemModel model;
+        final Thread thread;
+        volatile long renewedAtNanos = System.nanoTime();
+        volatile boolean leaseLost;
+
+        HeldJob(StemModel model, Thread thread) {
+            this.model = model;
+            this.thread = thread;
+        }
+    }
+
+    // Traitements dont ce worker détient le bail : videoId -> traitement
+    private final Map<String, HeldJob> heldJobs = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+    private ThreadPoolExecutor slots;
+    private ScheduledExecutorService heartbeat;
+
+    public SeparationWorker(AudioProcessorService audioProcessorService, VideoRepository videoRepository,
+                            TaskStatusManager statusManager,
+                            @Value("${onedrop.role:standalone}") String role,
+                            @Value("${onedrop.worker.id:}") String workerId,
+                            @Value("${onedrop.worker.concurrency:1}") int concurrency,
+                            @Value("${onedrop.worker.poll-interval-ms:1000}") long pollIntervalMs,
+                            @Value("${onedrop.worker.lease-seconds:60}") long leaseSeconds,
+                            @Value("${onedrop.worker.max-attempts:3}") int maxAttempts) {
+        this.audioProcessorService = audioProcessorService;
+        this.videoRepository = videoRepository;
+        this.statusManager = statusManager;
+        this.role = NodeRole.fromName(role);
+        this.workerId = workerId.isBlank() ? defaultWorkerId() : workerId.trim();
+        this.concurrency = Math.max(1, concurrency);
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "worker";
+        }
+        return host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (role != NodeRole.WORKER) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        slots = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    // Non démons : sans serveur web (profil worker), ce sont eux qui maintiennent la JVM en vie
+                    return new Thread(runnable, "separation-worker-" + threadCount.incrementAndGet());
+                });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "separation-worker-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, heartbeatMs(), heartbeatMs(), TimeUnit.MILLISECONDS);
+        for (int i = 0; i < concurrency; i++) {
+            slots.execute(this::workLoop);
+        }
+        System.out.println("Separation worker " + workerId + " started: " + concurrency + " slot(s), lease "
+                + leaseSeconds + " s, max " + maxAttempts + " attempts");
+    }
+
+    @PreDestroy
+    void stop() {
+        if (slots == null) {
+            return;
+        }
+        stopping = true;
+        heartbeat.shutdownNow();
+        // Interrompt les traitements en cours (l'outil externe est tué) ; chaque boucle remet son traitement en file
+        slots.shutdownNow();
+        try {
+            if (!slots.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Separation worker " + workerId + " stopped with jobs still running; their leases will expire");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (!stopping) {
+            Optional<String> claimed;
+            try {
+                claimed = claimNext();
+            } catch (RuntimeException e) {
+                System.err.println("Worker " + workerId + " could not poll the job queue: " + e.getMessage());
+                claimed = Optional.empty();
+            }
+            if (claimed.isPresent()) {
+                runClaimed(claimed.get());
+                continue;
+            }
+            try {
+                Thread.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                if (stopping) {
+                    return;
+                }
+                // Interruption d'un bail perdu arrivée après la fin de son traitement : sans objet
+            }
+        }
+    }
+
+    Optional<String> claimNext() {
+        int abandoned = videoRepository.failExhaustedJobs(maxAttempts, SeparationJobQueue.ACTIVE_STATUSES,
+                Status.FAILED.name(), Status.COMPLETED.name());
+        if (abandoned > 0) {
+            System.err.println("Abandoned " + abandoned + " job(s) after " + maxAttempts + " expired leases");
+        }
+        for (String videoId : videoRepository.findClaimableJobs(SeparationJobQueue.ACTIVE_STATUSES, maxAttempts,
+                PageRequest.of(0, CLAIM_BATCH))) {
+            // Perdre la course contre un autre worker se traduit simplement par 0 ligne modifiée
+            if (videoRepository.claimJob(videoId, workerId, leaseSeconds, SeparationJobQueue.ACTIVE_STATUSES, maxAttempts) == 1) {
+                return Optional.of(videoId);
+            }
+        }
+        return Optional.empty();
+    }
+
+    void runClaimed(String videoId) {
+        Optional<VideoEntry> entry = videoRepository.findById(videoId);
+        StemModel model;
+        try {
+            model = StemModel.fromName(entry.map(VideoEntry::getJobModel).orElse(null));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Worker " + workerId + " rejects " + videoId + ": " + e.getMessage());
+            videoRepository.releaseJob(videoId, workerId, Status.FAILED.name());
+            return;
+        }
+        String jobKey = model.jobKey(videoId);
+        System.out.println("Worker " + workerId + " claimed " + jobKey + " (attempt "
+                + entry.map(VideoEntry::getJobAttempts).orElse(1) + "/" + maxAttempts + ")");
+
+        HeldJob held = new HeldJob(model, Thread.currentThread());
+        heldJobs.put(videoId, held);
+        boolean success;
+        try {
+            statusManager.updateStatus(jobKey, Status.PENDING);
+            if (entry.map(VideoEntry::getJobAttempts).orElse(1) > 1) {
+                discardInterruptedStems(videoId, model, jobKey);
+            }
+            success = audioProcessorService.runJob(videoId, model, workerId);
+        } finally {
+            heldJobs.remove(videoId);
+        }
+
+        int released;
+        if (held.leaseLost) {
+            Thread.interrupted(); // Interruption due au bail perdu : la boucle continue avec d'autres traitements
+            System.err.println("Worker " + workerId + " abandoned " + jobKey + " after losing its lease; result left to the new owner");
+            released = 1;
+        } else if (stopping && !success) {
+            Thread.interrupted(); // L'interruption d'arrêt a fait son office : la remise en file doit aboutir
+            // La reprise ne compte pas comme nouvelle tentative : les pistes partielles sont retirées ici
+            discardInterruptedStems(videoId, model, jobKey);
+            released = videoRepository.requeueJob(videoId, workerId, Status.PENDING.name(), Status.FAILED.name());
+            System.out.println("Worker " + workerId + " stopping: " + jobKey + " returned to the queue");
+        } else {
+            released = videoRepository.releaseJob(videoId, workerId, (success ? Status.COMPLETED : Status.FAILED).name());
+        }
+        if (released == 0) {
+            System.err.println("Worker " + workerId + " lost the lease on " + jobKey + " before finishing; result left to the new owner");
+        }
+        // Le statut fait foi dans la base : inutile de le garder en mémoire côté worker
+        statusManager.removeTask(jobKey);
+    }
+
+    private void discardInterruptedStems(String videoId, StemModel model, String jobKey) {
+        try {
+            audioProcessorService.discardInterruptedStems(videoId, model);
+        } catch (IOException e) {
+            // Le pipeline échouera proprement sur les pistes restantes
+            System.err.println("Worker " + workerId + " could not clean up the interrupted attempt of " + jobKey + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prolonge les baux détenus et publie l'étape locale (DOWNLOADING, SEPARATING) pour le nœud API.
+     */
+    void renewLeases() {
+        heldJobs.forEach((videoId, held) -> {
+            if (held.leaseLost) {
+                return;
+            }
+            String jobKey = held.model.jobKey(videoId);
+            Status status = statusManager.getStatus(jobKey);
+            // La fin du traitement n'est publiée qu'au relâchement du bail
+            if (status == null) {
+                status = Status.PENDING;
+            } else if (status == Status.COMPLETED || status == Status.FAILED) {
+                status = Status.SEPARATING;
+            }
+            try {
+                if (videoRepository.renewLease(videoId, workerId, leaseSeconds, status.name()) == 0) {
+                    System.err.println("Worker " + workerId + " lost the lease on " + jobKey + "; interrupting it");
+                    abandon(held);
+                    return;
+                }
+                held.renewedAtNanos = System.nanoTime();
+            } catch (RuntimeException e) {
+                System.err.println("Worker " + workerId + " could not renew the lease on " + jobKey + ": " + e.getMessage());
+                // Base injoignable : le bail expire côté base un bail après le dernier renouvellement réussi.
+                // On s'arrête un battement avant, pour ne pas écrire encore quand un autre worker peut reprendre
+                long heldNanos = System.nanoTime() - held.renewedAtNanos;
+                if (heldNanos >= TimeUnit.SECONDS.toNanos(leaseSeconds) - TimeUnit.MILLISECONDS.toNanos(heartbeatMs())) {
+                    System.err.println("Worker " + workerId + " could not renew " + jobKey + " for a whole lease; interrupting it");
+                    abandon(held);
+                }
+            }
+        });
+    }
+
+    private void abandon(HeldJob held) {
+        held.leaseLost = true;
+        held.thread.interrupt(); // L'outil externe est tué, le pipeline échoue sans écrire (bail perdu)
+    }
+
+    // Trois battements par bail : un battement manqué (GC, base lente) ne fait pas perdre le traitement
+    private long heartbeatMs() {
+        return Math.max(1, leaseSeconds * 1000 / 3);
+    }
+}
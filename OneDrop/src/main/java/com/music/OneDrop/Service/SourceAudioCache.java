@@ -0,0 +1,333 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache disque borné des fichiers audio source (WAV téléchargés par yt-dlp), dans ~/OneDrop/sources.
+ * Chaque source est stockée compressée (gzip) avec la somme SHA-256 du WAV d'origine, vérifiée à la restauration :
+ * une source corrompue est supprimée et re-téléchargée. Alimenté par chaque téléchargement du pipeline
+ * et par le pré-téléchargement spéculatif ; une relance (échec, autre modèle, re-séparation après éviction)
+ * n'a plus besoin du réseau. Au-delà de la taille maximale, les sources les moins récemment utilisées sont supprimées.
+ */
+@Component
+public class SourceAudioCache {
+
+    // Toujours local (~/OneDrop/sources), même quand les pistes sont sur un dossier partagé
+    static final Path SOURCE_CACHE_DIR = AudioProcessorService.APP_DATA_DIR.resolve("sources");
+    private static final String SOURCE_EXTENSION = ".wav.gz";
+    private static final String CHECKSUM_EXTENSION = ".sha256";
+    // Téléchargements et compressions en cours dans un sous-dossier : yt-dlp impose lui-même l'extension du fichier produit
+    private static final Path PARTIAL_DIR = SOURCE_CACHE_DIR.resolve("partial");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @FunctionalInterface
+    public interface Downloader {
+        void download(String videoId, Path target) throws Exception;
+    }
+
+    private static final class SourceEntry {
+        final long bytes;
+        final String sha256;
+        long lastAccessMillis;
+        int readers; // Restaurations en cours : l'entrée ne peut pas être évincée
+
+        SourceEntry(long bytes, String sha256, long lastAccessMillis) {
+            this.bytes = bytes;
+            this.sha256 = sha256;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    // Clé: videoId ; synchronisé sur 'entries'
+    private final Map<String, SourceEntry> entries = new LinkedHashMap<>();
+    // Téléchargements en cours : un traitement réel attend celui-ci au lieu de télécharger une seconde fois
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong uncompressedBytesStored = new AtomicLong();
+    private final AtomicLong compressedBytesStored = new AtomicLong();
+
+    @Value("${onedrop.source-cache.max-mb:4096}")
+    private long maxMb;
+
+    /**
+     * Recense les sources présentes au démarrage et supprime les fichiers incomplets.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scanCacheDirectory() {
+        try {
+            StorageQuotaManager.deleteRecursively(PARTIAL_DIR);
+        } catch (IOException e) {
+            System.err.println("Could not delete partial sources: " + e.getMessage());
+        }
+        File[] files = SOURCE_CACHE_DIR.toFile().listFiles(File::isFile);
+        if (files != null) {
+            synchronized (entries) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (name.endsWith(CHECKSUM_EXTENSION)) {
+                        continue;
+                    }
+                    Path checksumFile = SOURCE_CACHE_DIR.resolve(name + CHECKSUM_EXTENSION);
+                    if (name.endsWith(SOURCE_EXTENSION) && Files.exists(checksumFile)) {
+                        try {
+                            String sha256 = Files.readString(checksumFile, StandardCharsets.US_ASCII).trim();
+                            String videoId = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+                            entries.put(videoId, new SourceEntry(file.length(), sha256, file.lastModified()));
+                            continue;
+                        } catch (IOException e) {
+                            System.err.println("Unreadable checksum for cached source " + name + ": " + e.getMessage());
+                        }
+                    }
+                    // Source sans somme de contrôle (ou ancien format non compressé) : inutilisable
+                    deleteQuietly(file.toPath());
+                    deleteQuietly(checksumFile);
+                }
+            }
+        }
+        System.out.println("Source cache at startup: " + usedBytes() / (1024 * 1024) + " MB in " + size() + " files");
+        evictToFit();
+    }
+
+    public boolean contains(String videoId) {
+        synchronized (entries) {
+            return entries.containsKey(videoId);
+        }
+    }
+
+    public boolean isDownloading(String videoId) {
+        return inFlight.containsKey(videoId);
+    }
+
+    /**
+     * Télécharge la source dans le cache si elle n'y est pas déjà (ni en cours de téléchargement).
+     * @return true si un téléchargement a été effectué avec succès.
+     */
+    public boolean prefetch(String videoId, Downloader downloader) {
+        if (contains(videoId)) {
+            return false;
+        }
+        CompletableFuture<Boolean> ownFuture = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(videoId, ownFuture) != null) {
+            return false;
+        }
+        Path partial = PARTIAL_DIR.resolve(videoId + ".wav");
+        boolean stored = false;
+        try {
+            Files.createDirectories(PARTIAL_DIR);
+            downloader.download(videoId, partial);
+            store(videoId, partial);
+            stored = true;
+        } catch (Exception e) {
+            System.err.println("Source prefetch failed for " + videoId + ": " + e.getMessage());
+        } finally {
+            deleteQuietly(partial);
+            inFlight.remove(videoId, ownFuture);
+            ownFuture.complete(stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Compresse une source fraîchement téléchargée dans le cache (le fichier d'origine est conservé).
+     */
+    public void store(String videoId, Path sourceWav) throws IOException {
+        Files.createDirectories(PARTIAL_DIR);
+        Path partial = PARTIAL_DIR.resolve(videoId + SOURCE_EXTENSION);
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(sourceWav), digest);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), BUFFER_SIZE) {
+                 // Le PCM se compresse peu : le niveau le plus rapide garde l'essentiel du gain
+                 { def.setLevel(Deflater.BEST_SPEED); }
+             }) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            throw e;
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        long compressedBytes = Files.size(partial);
+
+        synchronized (entries) {
+            // Écrire la somme avant le renommage : un .wav.gz visible a toujours sa somme
+            Files.writeString(checksumFile(videoId), sha256, StandardCharsets.US_ASCII);
+            Files.move(partial, sourceFile(videoId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entries.put(videoId, new SourceEntry(compressedBytes, sha256, System.currentTimeMillis()));
+        }
+        uncompressedBytesStored.addAndGet(Files.size(sourceWav));
+        compressedBytesStored.addAndGet(compressedBytes);
+        evictToFit();
+    }
+
+    /**
+     * Décompresse la source en cache vers 'target' en vérifiant sa somme SHA-256 ; l'entrée reste en cache
+     * pour les relances suivantes. Si la source est en cours de téléchargement, attend la fin de celui-ci.
+     * @return true si la source a été restaurée ; sinon l'appelant doit la télécharger lui-même.
+     */
+    public boolean restoreInto(String videoId, Path target) {
+        CompletableFuture<Boolean> pending = inFlight.get(videoId);
+        if (pending != null) {
+            System.out.println("Waiting for speculative download of " + videoId);
+            pending.join();
+        }
+        SourceEntry entry;
+        synchronized (entries) {
+            entry = entries.get(videoId);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            entry.readers++;
+            entry.lastAccessMillis = System.currentTimeMillis();
+        }
+
+        boolean valid = false;
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(new GZIPInputStream(Files.newInputStream(sourceFile(videoId)), BUFFER_SIZE), digest);
+                 OutputStream out = Files.newOutputStream(target)) {
+                in.transferTo(out);
+            }
+            valid = HexFormat.of().formatHex(digest.digest()).equals(entry.sha256);
+            if (valid) {
+                // Date de modification = dernier accès (ordre LRU conservé au redémarrage)
+                Files.setLastModifiedTime(sourceFile(videoId), FileTime.fromMillis(entry.lastAccessMillis));
+            }
+        } catch (IOException e) {
+            // gzip tronqué ou CRC invalide : traité comme une somme incorrecte
+            System.err.println("Could not restore cached source for " + videoId + ": " + e.getMessage());
+        } finally {
+            synchronized (entries) {
+                entry.readers--;
+            }
+        }
+
+        if (!valid) {
+            System.err.println("Cached source for " + videoId + " failed checksum validation, discarding it");
+            corrupted.incrementAndGet();
+            misses.incrementAndGet();
+            remove(videoId);
+            deleteQuietly(target);
+            return false;
+        }
+        hits.incrementAndGet();
+        return true;
+    }
+
+    public long usedBytes() {
+        synchronized (entries) {
+            return entries.values().stream().mapToLong(entry -> entry.bytes).sum();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", size());
+        stats.put("usedMb", usedBytes() / (1024 * 1024));
+        stats.put("maxMb", maxMb);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("corrupted", corrupted.get());
+        stats.put("evictions", evictions.get());
+        stats.put("downloading", inFlight.size());
+        long uncompressed = uncompressedBytesStored.get();
+        stats.put("compressionRatio", uncompressed == 0 ? null : (double) compressedBytesStored.get() / uncompressed);
+        return stats;
+    }
+
+    private void remove(String videoId) {
+        synchronized (entries) {
+            entries.remove(videoId);
+            deleteQuietly(sourceFile(videoId));
+            deleteQuietly(checksumFile(videoId));
+        }
+    }
+
+    /**
+     * Supprime les sources les moins récemment utilisées jusqu'à repasser sous la taille maximale.
+     * Une source en cours de restauration n'est jamais supprimée.
+     */
+    private void evictToFit() {
+        long maxBytes = maxMb * 1024 * 1024;
+        synchronized (entries) {
+            long used = usedBytes();
+            if (used <= maxBytes) {
+                return;
+            }
+            List<Map.Entry<String, SourceEntry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccessMillis));
+            for (Map.Entry<String, SourceEntry> candidate : candidates) {
+                if (used <= maxBytes) {
+                    break;
+                }
+                if (candidate.getValue().readers > 0) {
+                    continue;
+                }
+                remove(candidate.getKey());
+                used -= candidate.getValue().bytes;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static Path sourceFile(String videoId) {
+        return SOURCE_CACHE_DIR.resolve(videoId + SOURCE_EXTENSION);
+    }
+
+    private static Path checksumFile(String videoId) {
+        return SOURCE_CACHE_DIR.resolve(videoId + SOURCE_EXTENSION + CHECKSUM_EXTENSION);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+}
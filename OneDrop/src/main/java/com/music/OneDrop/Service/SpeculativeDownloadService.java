@@ -0,0 +1,205 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Dto.VideoDto;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pré-téléchargement spéculatif (optionnel) de l'audio source des vidéos que l'utilisateur
+ * va probablement traiter : les premiers résultats d'une recherche, ou une vidéo dont la page est ouverte.
+ * Les téléchargements passent sur une voie unique de basse priorité qui cède la place aux vrais traitements ;
+ * un POST /process ultérieur trouve la source dans le SourceAudioCache et passe directement à la séparation.
+ */
+@Service
+public class SpeculativeDownloadService {
+
+    // Tant qu'un vrai traitement tourne, on patiente par pas de 2 s, au plus 2 minutes, puis on renonce
+    private static final long YIELD_POLL_MS = 2_000;
+    private static final long MAX_YIELD_MS = 120_000;
+
+    private final SourceAudioCache sourceCache;
+    private final AudioProcessorService audioProcessorService;
+    private final TaskStatusManager statusManager;
+    private final VideoRepository videoRepository;
+
+    private final boolean enabled;
+    private final int topCandidates;
+    private final Duration maxDuration;
+
+    // Suggestions en file ou en cours (une vidéo n'est suggérée qu'une fois à la fois)
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    // Une seule voie, file courte : quand elle déborde, les suggestions les plus anciennes sont abandonnées
+    private final ThreadPoolExecutor lane = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(8),
+            runnable -> {
+                Thread thread = new Thread(runnable, "speculative-download");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            this::dropOldest);
+
+    private record SpeculativeTask(String videoId, Runnable body) implements Runnable {
+        @Override
+        public void run() {
+            body.run();
+        }
+    }
+
+    private final AtomicLong suggested = new AtomicLong();
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public SpeculativeDownloadService(SourceAudioCache sourceCache, AudioProcessorService audioProcessorService,
+                                      TaskStatusManager statusManager, VideoRepository videoRepository,
+                                      @Value("${onedrop.speculative.enabled:false}") boolean enabled,
+                                      @Value("${onedrop.speculative.top-candidates:2}") int topCandidates,
+                                      @Value("${onedrop.speculative.max-duration-minutes:15}") long maxDurationMinutes) {
+        this.sourceCache = sourceCache;
+        this.audioProcessorService = audioProcessorService;
+        this.statusManager = statusManager;
+        this.videoRepository = videoRepository;
+        this.enabled = enabled;
+        this.topCandidates = topCandidates;
+        this.maxDuration = Duration.ofMinutes(maxDurationMinutes);
+    }
+
+    @PreDestroy
+    void shutdownLane() {
+        lane.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Une page de résultats vient d'être servie : les premiers candidats sont pré-téléchargés.
+     */
+    public void suggest(List<VideoDto> results) {
+        if (!enabled || results == null) {
+            return;
+        }
+        results.stream()
+                .limit(topCandidates)
+                .filter(video -> isReasonableDuration(video.getDuration()))
+                .forEach(video -> suggest(video.getVideoId()));
+    }
+
+    /**
+     * Suggère une vidéo précise (ex: sa page vient d'être ouverte).
+     * @return true si le pré-téléchargement a été mis en file.
+     */
+    public boolean suggest(String videoId) {
+        if (!enabled || videoId == null || !isWorthPrefetching(videoId) || !queued.add(videoId)) {
+            return false;
+        }
+        suggested.incrementAndGet();
+        lane.execute(new SpeculativeTask(videoId, () -> {
+            try {
+                runSpeculative(videoId);
+            } finally {
+                queued.remove(videoId);
+            }
+        }));
+        return true;
+    }
+
+    /**
+     * File pleine : la suggestion la plus ancienne est abandonnée. Elle ne s'exécutera jamais,
+     * son videoId est donc libéré ici (sinon la vidéo ne pourrait plus être suggérée).
+     */
+    private void dropOldest(Runnable rejected, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            queued.remove(((SpeculativeTask) rejected).videoId());
+            return;
+        }
+        Runnable dropped = executor.getQueue().poll();
+        if (dropped instanceof SpeculativeTask task) {
+            queued.remove(task.videoId());
+            skipped.incrementAndGet();
+        }
+        executor.execute(rejected);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("suggested", suggested.get());
+        stats.put("downloaded", downloaded.get());
+        stats.put("skipped", skipped.get());
+        stats.put("queued", lane.getQueue().size());
+        stats.put("sourceCache", sourceCache.getStats());
+        return stats;
+    }
+
+    private void runSpeculative(String videoId) {
+        try {
+            // Céder la place aux vrais traitements (réseau et CPU)
+            long waitedMs = 0;
+            while (statusManager.hasActiveTasks()) {
+                if (waitedMs >= MAX_YIELD_MS) {
+                    skipped.incrementAndGet();
+                    return;
+                }
+                Thread.sleep(YIELD_POLL_MS);
+                waitedMs += YIELD_POLL_MS;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // La situation a pu changer pendant l'attente (traitement lancé entre-temps)
+        if (!isWorthPrefetching(videoId)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        System.out.println("Speculative download started for: " + videoId);
+        if (sourceCache.prefetch(videoId, audioProcessorService::downloadSource)) {
+            downloaded.incrementAndGet();
+        }
+    }
+
+    private boolean isWorthPrefetching(String videoId) {
+        if (sourceCache.contains(videoId) || sourceCache.isDownloading(videoId)) {
+            return false;
+        }
+        // Déjà en cours de traitement : le pipeline télécharge lui-même
+        Status status = statusManager.getStatus(videoId);
+        if (status == Status.PENDING || status == Status.DOWNLOADING || status == Status.SEPARATING) {
+            return false;
+        }
+        // Pistes déjà présentes : rien à télécharger (une vidéo EVICTED, elle, en profite)
+        return videoRepository.findById(videoId)
+                .map(entry -> !Status.COMPLETED.name().equals(entry.getStatus()))
+                .orElse(true);
+    }
+
+    // Durée ISO 8601 (PT3M25S) ; les directs (P0D) et les vidéos trop longues ne valent pas le pari
+    private boolean isReasonableDuration(String isoDuration) {
+        if (isoDuration == null) {
+            return false;
+        }
+        try {
+            Duration duration = Duration.parse(isoDuration);
+            return !duration.isZero() && duration.compareTo(maxDuration) <= 0;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Séparation avec l'exécutable Spleeter. La ligne de commande est un modèle configurable
+ * (onedrop.spleeter.arguments) dont les jetons {input}, {output} et {model} sont remplacés :
+ * le wrapper Windows historique prend "{input} {output} -p {model}", la CLI Python
+ * "separate -p {model} -o {output} {input}".
+ */
+@Component
+@ConditionalOnProperty(name = "onedrop.engine.separator", havingValue = "spleeter", matchIfMissing = true)
+public class SpleeterEngine implements SeparationEngine {
+
+    private final String executable;
+    private final List<String> argumentTemplate;
+    private final long timeoutMinutes;
+    private final Executor supervisor;
+
+    public SpleeterEngine(@Value("${onedrop.spleeter.executable:}") String executable,
+                          @Value("${onedrop.spleeter.arguments:{input} {output} -p {model}}") String arguments,
+                          @Value("${onedrop.spleeter.timeout-minutes:20}") long timeoutMinutes,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.executable = ExternalCommand.resolveTool(executable, "spleeter");
+        this.argumentTemplate = List.of(arguments.trim().split("\\s+"));
+        this.timeoutMinutes = timeoutMinutes;
+        this.supervisor = ExternalCommand.supervisorExecutor(virtualThreads);
+    }
+
+    @Override
+    public Path separate(Path inputWav, Path outputDir, StemModel model, CpuGovernor.Slot cpu) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        for (String token : argumentTemplate) {
+            // Remplacement jeton par jeton : un chemin avec espaces reste un seul argument
+            command.add(token
+                    .replace("{input}", inputWav.toString())
+                    .replace("{output}", outputDir.toString())
+                    .replace("{model}", model.getSpleeterModel()));
+        }
+
+        System.out.println("Début de la séparation Spleeter (" + model.getName() + ", " + cpu.getThreads() + " threads)...");
+        int exitCode = ExternalCommand.run(cpu.wrapCommand(command), cpu.environment(), timeoutMinutes, supervisor);
+
+        // Vérification critique après l'exécution de Spleeter
+        Path stemsFolder = SeparationEngine.stemsFolderFor(inputWav, outputDir);
+        if (exitCode != 0) {
+            // Tolère un code d'erreur SI le travail a été fait (fichier 'vocals.wav' créé).
+            if (Files.exists(stemsFolder.resolve("vocals.wav"))) {
+                System.out.println("WARNING: Spleeter returned non-zero exit code (" + exitCode +
+                                   "), but output file found. Assuming success.");
+            } else {
+                throw new IOException("Spleeter failed (Code: " + exitCode + ") and no output file found.");
+            }
+        }
+        return stemsFolder;
+    }
+}
@@ -0,0 +1,124 @@
+package com.music.OneDrop.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared cache for public Spotify catalog responses (artist top tracks, albums, album tracks).
+ * Keyed by resource and market, never by access token: the data is identical for every user.
+ * Bounded LRU with a TTL per entry; once expired, an entry keeps its ETag so the next fetch can be
+ * a conditional request (If-None-Match) that costs Spotify a 304 instead of a full body.
+ * Concurrent misses on the same key share one upstream call.
+ */
+public class SpotifyCatalogCache {
+
+    public record CachedResponse(String body, String contentType, String etag, long expiresAtNanos) {
+        boolean isFresh() {
+            return expiresAtNanos - System.nanoTime() > 0;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, CachedResponse> entries;
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SpotifyCatalogCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // Access order: the least recently read entry is evicted first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                if (size() > SpotifyCatalogCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static String key(String resource, String market) {
+        return resource + "|" + (market == null ? "" : market);
+    }
+
+    /**
+     * Returns the entry, fresh or expired (expired entries still carry their ETag and body), or null.
+     */
+    public CachedResponse get(String key) {
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    public CachedResponse put(String key, String body, String contentType, String etag) {
+        CachedResponse response = new CachedResponse(body, contentType, etag, System.nanoTime() + ttlNanos);
+        synchronized (entries) {
+            entries.put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Upstream answered 304: the cached body is still valid for another TTL.
+     */
+    public CachedResponse renew(String key, CachedResponse stale) {
+        revalidated.incrementAndGet();
+        return put(key, stale.body(), stale.contentType(), stale.etag());
+    }
+
+    /**
+     * Single-flight: returns the upstream call already running for this key, or registers 'call'
+     * (the caller must then start it and call {@link #complete} when it finishes).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> joinOrRegister(String key, CompletableFuture<T> call) {
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (CompletableFuture<T>) existing;
+        }
+        return null;
+    }
+
+    public void complete(String key, CompletableFuture<?> call) {
+        inFlight.remove(key, call);
+    }
+
+    public void recordHit() { hits.incrementAndGet(); }
+    public void recordMiss() { misses.incrementAndGet(); }
+    public void recordStaleServed() { staleServed.incrementAndGet(); }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long revalidatedCount = revalidated.get();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("revalidated", revalidatedCount);
+        stats.put("coalesced", coalesced.get());
+        stats.put("staleServed", staleServed.get());
+        stats.put("evictions", evictions.get());
+        long lookups = hitCount + missCount + coalesced.get();
+        // Served without a full upstream body: fresh hits, shared calls and 304 revalidations
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) (hitCount + coalesced.get() + revalidatedCount) / lookups);
+        return stats;
+    }
+}
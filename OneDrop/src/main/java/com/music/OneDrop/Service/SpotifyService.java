@@ -1,339 +1,706 @@
 package com.music.OneDrop.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
-import org.springframework.web.client.HttpClientErrorException; // <-- Import this!
-import org.springframework.web.client.HttpServerErrorException; // <-- Import this!
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Non-blocking proxy to the Spotify Web API.
+ * Every call goes through the shared HttpClient (see SpotifyConfig) and returns a CompletableFuture:
+ * the controller hands it to Spring MVC, which releases the servlet thread until Spotify answers.
+ * Upstream statuses (401, 404, ...) are forwarded with their body so the frontend can refresh its token.
+ * Per-user calls (search, profile, top artists, following) are streamed through as bytes, never as a String.
+ * Public catalog calls (artist top tracks, albums, album tracks) go through a shared cache keyed by
+ * resource and market; responses carry an X-Cache header (HIT, MISS, REVALIDATED, STALE).
+ * A 429 from Spotify is not bounced straight back to the browser: the request waits for the Retry-After
+ * window (see SpotifyThrottle) and is retried, and later requests are held until the window ends.
+ */
 @Service
 public class SpotifyService {
 
     private static final Logger logger = LoggerFactory.getLogger(SpotifyService.class);
 
-    // 🚨 Final Base URL requested by the user
-    private static final String SPOTIFY_API_BASE = "https://api.spotify.com/v1/";
     private static final String SPOTIFY_API_V1 = "https://api.spotify.com/v1";
-    private final RestTemplate restTemplate;
+    public static final String DEFAULT_MARKET = "US";
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+    // Largest page Spotify accepts for albums and album tracks
+    private static final int PAGE_SIZE = 50;
+    // all=true stops after MAX_PAGES pages (2000 items): bounds the upstream fan-out of a single request
+    private static final int MAX_PAGES = 40;
+    private static final long STREAM_TIMEOUT_MS = 60_000;
+    // Pass-through copy buffers, shared by all streamed responses
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final BlockingQueue<byte[]> COPY_BUFFERS = new ArrayBlockingQueue<>(64);
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final SpotifyCatalogCache catalogCache;
+    private final ObjectMapper objectMapper;
+    private final int overviewMaxConcurrency;
+    private final int paginationMaxConcurrency;
+    private final SpotifyThrottle throttle;
+    private final int maxThrottleRetries;
+
+    public SpotifyService(HttpClient spotifyHttpClient, ObjectMapper objectMapper,
+                          @Value("${spotify.http.request-timeout-ms:8000}") long requestTimeoutMs,
+                          @Value("${spotify.catalog.cache.max-entries:5000}") int catalogCacheMaxEntries,
+                          @Value("${spotify.catalog.cache.ttl-minutes:60}") long catalogCacheTtlMinutes,
+                          @Value("${spotify.overview.max-concurrency:4}") int overviewMaxConcurrency,
+                          @Value("${spotify.pagination.max-concurrency:4}") int paginationMaxConcurrency,
+                          @Value("${spotify.throttle.max-retries:2}") int maxThrottleRetries,
+                          @Value("${spotify.throttle.max-hold-ms:10000}") long maxThrottleHoldMs) {
+        this.httpClient = spotifyHttpClient;
+        this.objectMapper = objectMapper;
+        this.overviewMaxConcurrency = overviewMaxConcurrency;
+        this.paginationMaxConcurrency = paginationMaxConcurrency;
+        this.maxThrottleRetries = maxThrottleRetries;
+        this.throttle = new SpotifyThrottle(Duration.ofMillis(maxThrottleHoldMs));
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.catalogCache = new SpotifyCatalogCache(catalogCacheMaxEntries, Duration.ofMinutes(catalogCacheTtlMinutes));
+    }
 
-    public SpotifyService() {
-        // You may want to configure RestTemplate more robustly in a @Configuration class,
-        // but this simple initialization is fine for now.
-        this.restTemplate = new RestTemplate();
+    public Map<String, Object> getCatalogCacheStats() {
+        return catalogCache.getStats();
     }
 
-    public ResponseEntity<String> searchSpotifyCatalog(String query, String authorizationHeader) {
-        
-        // 1. Build the target URL (must include the correct path: /search)
-        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(SPOTIFY_API_BASE + "/search")
-            .queryParam("q", query)
+    public Map<String, Object> getThrottleStats() {
+        return throttle.getStats();
+    }
+
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> searchSpotifyCatalog(String query, String authorizationHeader,
+                                                                                       String acceptEncoding) {
+        URI uri = UriComponentsBuilder.fromUriString(SPOTIFY_API_V1 + "/search")
+            .queryParam("q", "{q}")
             .queryParam("type", "track,artist,album") // Using all types for comprehensive search
-            .queryParam("limit", 10);
+            .queryParam("limit", 10)
+            .encode() // Strict encoding of the expanded query ('&', '+', ...)
+            .buildAndExpand(query)
+            .toUri();
+        return stream(uri, authorizationHeader, acceptEncoding, "search");
+    }
+
+    /**
+     * Fetches the current user's profile information from the Spotify API.
+     * @param authorizationHeader The 'Bearer <token>' header from the client.
+     * @return the user's profile JSON or an error status.
+     */
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getUserProfile(String authorizationHeader, String acceptEncoding) {
+        return stream(URI.create(SPOTIFY_API_V1 + "/me"), authorizationHeader, acceptEncoding, "profile");
+    }
+
+    /**
+     * Fetches the current user's top artists.
+     */
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getTopArtists(String authorizationHeader, String acceptEncoding) {
+        return stream(URI.create(SPOTIFY_API_V1 + "/me/top/artists"), authorizationHeader, acceptEncoding, "top artists");
+    }
+
+    /**
+     * Fetches the artists followed by the current user.
+     */
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getFollowing(String authorizationHeader, String acceptEncoding) {
+        return stream(URI.create(SPOTIFY_API_V1 + "/me/following?type=artist&limit=40"), authorizationHeader, acceptEncoding, "following");
+    }
+
+    public CompletableFuture<ResponseEntity<String>> getArtistTopTracks(String artistId, String authorizationHeader) {
+        return getArtistTopTracks(artistId, DEFAULT_MARKET, authorizationHeader);
+    }
+
+    public CompletableFuture<ResponseEntity<String>> getArtistTopTracks(String artistId, String market, String authorizationHeader) {
+        // Explicit market: without it Spotify picks the token owner's country and the response could not be shared
+        URI uri = UriComponentsBuilder.fromUriString(SPOTIFY_API_V1 + "/artists/{id}/top-tracks")
+            .queryParam("market", "{market}")
+            .queryParam("limit", "10")
+            .encode()
+            .buildAndExpand(artistId, market)
+            .toUri();
+        return getCatalog(uri, SpotifyCatalogCache.key("artist-top-tracks:" + artistId, market), authorizationHeader, "artist top tracks");
+    }
+
+    public CompletableFuture<ResponseEntity<String>> getArtistAlbums(String artistId, String authorizationHeader) {
+        return getArtistAlbums(artistId, DEFAULT_MARKET, authorizationHeader);
+    }
+
+    public CompletableFuture<ResponseEntity<String>> getArtistAlbums(String artistId, String market, String authorizationHeader) {
+        return getArtistAlbumsPage(artistId, market, 0, authorizationHeader);
+    }
+
+    private CompletableFuture<ResponseEntity<String>> getArtistAlbumsPage(String artistId, String market, int offset,
+                                                                         String authorizationHeader) {
+        // Spotify's artists albums endpoint requires a country/market parameter and grouping
+        URI uri = UriComponentsBuilder.fromUriString(SPOTIFY_API_V1 + "/artists/{id}/albums")
+            .queryParam("include_groups", "album,single,compilation") // Include common album types
+            .queryParam("market", "{market}") // Specify market for availability
+            .queryParam("limit", PAGE_SIZE) // Fetch up to 50 albums/singles
+            .queryParam("offset", offset)
+            .encode()
+            .buildAndExpand(artistId, market)
+            .toUri();
+        return getCatalog(uri, SpotifyCatalogCache.key(pageResource("artist-albums:" + artistId, offset), market),
+            authorizationHeader, "artist albums");
+    }
+
+    public CompletableFuture<ResponseEntity<String>> getAlbumTracks(String albumId, String authorizationHeader) {
+        return getAlbumTracks(albumId, DEFAULT_MARKET, authorizationHeader);
+    }
 
-        // 2. Prepare the headers (forward the Authorization header from the client)
-        HttpHeaders headers = new HttpHeaders();
-        // The authorizationHeader should be "Bearer <token>"
-        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
+    public CompletableFuture<ResponseEntity<String>> getAlbumTracks(String albumId, String market, String authorizationHeader) {
+        return getAlbumTracksPage(albumId, market, 0, authorizationHeader);
+    }
+
+    /**
+     * One page (PAGE_SIZE tracks) of an album, starting at 'offset'; used by the album import to read every track.
+     */
+    public CompletableFuture<ResponseEntity<String>> getAlbumTracksPage(String albumId, String market, int offset,
+                                                                       String authorizationHeader) {
+        URI uri = UriComponentsBuilder.fromUriString(SPOTIFY_API_V1 + "/albums/{id}/tracks")
+            .queryParam("market", "{market}") // Specify market for availability
+            .queryParam("limit", PAGE_SIZE) // Fetch up to 50 tracks
+            .queryParam("offset", offset)
+            .encode()
+            .buildAndExpand(albumId, market)
+            .toUri();
+        return getCatalog(uri, SpotifyCatalogCache.key(pageResource("album-tracks:" + albumId, offset), market),
+            authorizationHeader, "album tracks");
+    }
+
+    // The first page keeps the historical cache key, so 'all=true' and the plain endpoint share it
+    private static String pageResource(String resource, int offset) {
+        return offset == 0 ? resource : resource + "@" + offset;
+    }
+
+    /**
+     * Complete discography of an artist (all=true): see streamAllPages.
+     */
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> getAllArtistAlbums(String artistId, String market,
+                                                                                    String authorizationHeader) {
+        return streamAllPages(offset -> getArtistAlbumsPage(artistId, market, offset, authorizationHeader), "artist albums");
+    }
+
+    /**
+     * Every track of an album (all=true): see streamAllPages.
+     */
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> getAllAlbumTracks(String albumId, String market,
+                                                                                   String authorizationHeader) {
+        return streamAllPages(offset -> getAlbumTracksPage(albumId, market, offset, authorizationHeader), "album tracks");
+    }
+
+    /**
+     * Full pagination in about one round trip: the first page gives 'total', the remaining offsets are then
+     * requested in parallel (at most spotify.pagination.max-concurrency at once, each page through the catalog cache).
+     * The merged result is a single Spotify paging object streamed to the client: items are written in offset order
+     * as soon as the pages before them are complete, instead of buffering the whole discography.
+     * An error on the first page is forwarded as is; a page failing later is listed under "errors"
+     * (the 200 is already on the wire) and its items are missing. Beyond MAX_PAGES pages the result is cut:
+     * 'total' stays the upstream count, 'limit' is the number of items requested and "truncated" is true.
+     */
+    private CompletableFuture<ResponseEntity<ResponseBodyEmitter>> streamAllPages(
+            IntFunction<CompletableFuture<ResponseEntity<String>>> pageFetcher, String label) {
+        return pageFetcher.apply(0).thenApply(first -> {
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+            JsonNode firstPage = first.getStatusCode().is2xxSuccessful() ? readPage(first.getBody()) : null;
+            if (firstPage == null) {
+                ResponseEntity<String> error = first.getStatusCode().is2xxSuccessful()
+                    ? ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("{\"error\": \"Invalid JSON from Spotify\"}")
+                    : first;
+                emitWhole(emitter, error.getBody());
+                return ResponseEntity.status(error.getStatusCode()).contentType(MediaType.APPLICATION_JSON).body(emitter);
+            }
+
+            int total = firstPage.path("total").asInt(0);
+            int limit = Math.min(total, MAX_PAGES * PAGE_SIZE);
+            AsyncPermits permits = new AsyncPermits(paginationMaxConcurrency);
+            List<CompletableFuture<ResponseEntity<String>>> pages = new ArrayList<>();
+            for (int offset = PAGE_SIZE; offset < limit; offset += PAGE_SIZE) {
+                int pageOffset = offset;
+                pages.add(permits.submit(() -> pageFetcher.apply(pageOffset)));
+            }
 
-        // 3. Create the HTTP entity (request body is null for GET)
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+            PagedWriter writer = new PagedWriter(emitter, total, limit);
+            writer.writeItems(firstPage);
+            // Pages are all in flight; the chain only fixes the order in which they are written
+            CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < pages.size(); i++) {
+                int offset = (i + 1) * PAGE_SIZE;
+                CompletableFuture<ResponseEntity<String>> page = pages.get(i);
+                written = written.thenCompose(done -> page.thenAccept(response -> {
+                    JsonNode body = response.getStatusCode().is2xxSuccessful() ? readPage(response.getBody()) : null;
+                    if (body != null) {
+                        writer.writeItems(body);
+                    } else {
+                        writer.recordError(offset, response);
+                    }
+                }));
+            }
+            written.whenComplete((done, e) -> {
+                if (e != null) {
+                    System.err.println("Streaming " + label + " failed: " + e);
+                }
+                writer.finish();
+            });
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emitter);
+        }).exceptionally(e -> {
+            ResponseEntity<String> error = errorResponse(e, label);
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(STREAM_TIMEOUT_MS);
+            emitWhole(emitter, error.getBody());
+            return ResponseEntity.status(error.getStatusCode()).contentType(MediaType.APPLICATION_JSON).body(emitter);
+        });
+    }
 
-        // 4. Make the server-to-server call to the API endpoint
+    private JsonNode readPage(String body) {
+        if (body == null) {
+            return null;
+        }
         try {
-            // This will throw HttpClientErrorException (for 4xx) or HttpServerErrorException (for 5xx)
-            ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-                builder.toUriString(),
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-
-            // If successful (status 200), return the entire response
-            return spotifyResponse;
-            
-        } catch (HttpClientErrorException e) {
-            // 🚨 CRITICAL FIX: Catch 4xx errors (like 401) and forward them with the body
-            // This ensures the frontend receives the 401 status to trigger a token refresh
-            System.err.println("Spotify API Client Error: Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-            
-        } catch (HttpServerErrorException e) {
-            // Catch 5xx errors and forward them
-            System.err.println("Spotify API Server Error: Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-
-        } catch (Exception e) {
-            // Catch any other exceptions (e.g., network issues)
-            System.err.println("Unexpected error during Spotify proxy call: " + e.getMessage());
-            return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect or unexpected error.\"}");
+            JsonNode page = objectMapper.readTree(body);
+            return page.path("items").isArray() ? page : null;
+        } catch (JsonProcessingException e) {
+            return null;
         }
     }
-    // =========================================================================
-    // 2. NEW FUNCTION (Get User Profile)
-    // =========================================================================
+
+    private static void emitWhole(ResponseBodyEmitter emitter, String body) {
+        try {
+            emitter.send(body == null ? "" : body, MediaType.APPLICATION_JSON);
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
     /**
-     * Fetches the current user's profile information from the Spotify API.
-     * @param authorizationHeader The 'Bearer <token>' header from the client.
-     * @return ResponseEntity containing the user's profile JSON or an error status.
+     * Writes the merged paging object piece by piece. Calls are sequential (ordered chain),
+     * so no locking; once the client is gone the remaining pages are ignored.
      */
-    public ResponseEntity<String> getUserProfile(String authorizationHeader) {
-        
-        // Target URL: https://api.spotify.com/v1/me
-        String targetUrl = SPOTIFY_API_V1 + "/me";
-
-        // Prepare the headers (forward the Authorization header)
-        HttpHeaders headers = new HttpHeaders();
-        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-        
-        // Create the HTTP entity
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        // Make the server-to-server call
-        try {
-            ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-                targetUrl,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            return spotifyResponse;
-            
-        } catch (HttpClientErrorException e) {
-            System.err.println("Spotify API Client Error (Profile): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-            
-        } catch (Exception e) {
-            System.err.println("Unexpected error during Profile proxy call: " + e.getMessage());
-            return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect for profile.\"}");
+    private final class PagedWriter {
+        private final ResponseBodyEmitter emitter;
+        private final ArrayNode errors = objectMapper.createArrayNode();
+        private boolean firstItem = true;
+        private boolean closed;
+
+        PagedWriter(ResponseBodyEmitter emitter, int total, int limit) {
+            this.emitter = emitter;
+            // Same shape as a Spotify page holding everything, so the frontend parses it unchanged
+            write("{\"href\":null,\"limit\":" + limit + ",\"offset\":0,\"next\":null,\"previous\":null,\"total\":" + total
+                + ",\"truncated\":" + (limit < total) + ",\"items\":[");
+        }
+
+        void writeItems(JsonNode page) {
+            StringBuilder chunk = new StringBuilder();
+            for (JsonNode item : page.path("items")) {
+                if (!firstItem) {
+                    chunk.append(',');
+                }
+                chunk.append(item.toString());
+                firstItem = false;
+            }
+            if (chunk.length() > 0) {
+                write(chunk.toString());
+            }
+        }
+
+        void recordError(int offset, ResponseEntity<String> response) {
+            errors.addObject()
+                .put("offset", offset)
+                .put("status", response.getStatusCode().value())
+                .put("message", String.valueOf(response.getBody()));
+        }
+
+        void finish() {
+            write("],\"errors\":" + errors + "}");
+            if (!closed) {
+                emitter.complete();
+            }
+        }
+
+        private void write(String chunk) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(chunk, MediaType.APPLICATION_JSON);
+            } catch (IOException | IllegalStateException e) {
+                // Client disconnected or stream timed out
+                closed = true;
+                emitter.completeWithError(e);
+            }
         }
     }
-      // =========================================================================
-    // 2. NEW FUNCTION (Get top Artists)
-    // =========================================================================
+
     /**
-     * Fetches the current user's profile information from the Spotify API.
-     * @param authorizationHeader The 'Bearer <token>' header from the client.
-     * @return ResponseEntity containing the user's profile JSON or an error status.
+     * Everything an artist page needs in one document: top tracks, albums and the tracks of the first
+     * 'albumsWithTracks' albums. The calls run in parallel (at most spotify.overview.max-concurrency at once)
+     * and go through the catalog cache. A failing part is reported under "errors" and left null;
+     * only when both top tracks and albums are rejected with 401 is the 401 forwarded (token refresh).
      */
-    public ResponseEntity<String> getTopArtists(String authorizationHeader) {
-        
-        // Target URL: https://api.spotify.com/v1/me
-        String targetUrl = SPOTIFY_API_V1 + "/me/top/artists";
-
-        // Prepare the headers (forward the Authorization header)
-        HttpHeaders headers = new HttpHeaders();
-        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-        
-        // Create the HTTP entity
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        // Make the server-to-server call
+    public CompletableFuture<ResponseEntity<String>> getArtistOverview(String artistId, String market, int albumsWithTracks,
+                                                                      String authorizationHeader) {
+        AsyncPermits permits = new AsyncPermits(overviewMaxConcurrency);
+        CompletableFuture<ResponseEntity<String>> topTracks =
+            permits.submit(() -> getArtistTopTracks(artistId, market, authorizationHeader));
+        CompletableFuture<ResponseEntity<String>> albums =
+            permits.submit(() -> getArtistAlbums(artistId, market, authorizationHeader));
+
+        // Album tracks depend on the album list, but not on the top tracks
+        CompletableFuture<Map<String, ResponseEntity<String>>> albumTracks = albums.thenCompose(albumsResponse -> {
+            Map<String, CompletableFuture<ResponseEntity<String>>> calls = new LinkedHashMap<>();
+            for (String albumId : firstAlbumIds(albumsResponse, albumsWithTracks)) {
+                calls.put(albumId, permits.submit(() -> getAlbumTracks(albumId, market, authorizationHeader)));
+            }
+            return CompletableFuture.allOf(calls.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    Map<String, ResponseEntity<String>> responses = new LinkedHashMap<>();
+                    calls.forEach((albumId, call) -> responses.put(albumId, call.join()));
+                    return responses;
+                });
+        });
+
+        return CompletableFuture.allOf(topTracks, albumTracks)
+            .thenApply(done -> buildOverview(artistId, market, topTracks.join(), albums.join(), albumTracks.join()))
+            .exceptionally(e -> errorResponse(e, "artist overview"));
+    }
+
+    private List<String> firstAlbumIds(ResponseEntity<String> albumsResponse, int limit) {
+        List<String> albumIds = new ArrayList<>();
+        if (!albumsResponse.getStatusCode().is2xxSuccessful() || albumsResponse.getBody() == null) {
+            return albumIds;
+        }
+        try {
+            for (JsonNode album : objectMapper.readTree(albumsResponse.getBody()).path("items")) {
+                if (albumIds.size() >= limit) {
+                    break;
+                }
+                if (album.hasNonNull("id")) {
+                    albumIds.add(album.get("id").asText());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            System.err.println("Could not read artist albums for overview: " + e.getMessage());
+        }
+        return albumIds;
+    }
+
+    private ResponseEntity<String> buildOverview(String artistId, String market, ResponseEntity<String> topTracks,
+                                                 ResponseEntity<String> albums, Map<String, ResponseEntity<String>> albumTracks) {
+        if (topTracks.getStatusCode() == HttpStatus.UNAUTHORIZED && albums.getStatusCode() == HttpStatus.UNAUTHORIZED) {
+            return albums;
+        }
+        ObjectNode overview = objectMapper.createObjectNode();
+        ObjectNode errors = objectMapper.createObjectNode();
+        overview.put("artistId", artistId);
+        overview.put("market", market);
+        overview.set("topTracks", partOrError("topTracks", topTracks, errors));
+        overview.set("albums", partOrError("albums", albums, errors));
+        ObjectNode tracksByAlbum = overview.putObject("albumTracks");
+        albumTracks.forEach((albumId, response) -> tracksByAlbum.set(albumId, partOrError("albumTracks." + albumId, response, errors)));
+        overview.set("errors", errors);
         try {
-            ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-                targetUrl,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            return spotifyResponse;
-            
-        } catch (HttpClientErrorException e) {
-            System.err.println("Spotify API Client Error (top artists): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-            
-        } catch (Exception e) {
-            System.err.println("Unexpected error during Profile proxy call: " + e.getMessage());
-            return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect for profile.\"}");
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectMapper.writeValueAsString(overview));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
     }
-      // 2. NEW FUNCTION (Get top Artists)
-    // =========================================================================
+
+    // Parsed body of a successful part; otherwise null, with the upstream status recorded in 'errors'
+    private JsonNode partOrError(String part, ResponseEntity<String> response, ObjectNode errors) {
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            try {
+                return objectMapper.readTree(response.getBody());
+            } catch (JsonProcessingException e) {
+                errors.putObject(part).put("status", HttpStatus.BAD_GATEWAY.value()).put("message", "Invalid JSON from Spotify");
+                return null;
+            }
+        }
+        errors.putObject(part).put("status", response.getStatusCode().value()).put("message", String.valueOf(response.getBody()));
+        return null;
+    }
+
     /**
-     * Fetches the current user's profile information from the Spotify API.
-     * @param authorizationHeader The 'Bearer <token>' header from the client.
-     * @return ResponseEntity containing the user's profile JSON or an error status.
+     * Sends an asynchronous GET to Spotify, forwarding the caller's Authorization header, and streams the
+     * upstream body to the client without building a String: the bytes are copied through a pooled buffer,
+     * still gzip-compressed when the client accepts gzip (decompressed on the fly otherwise).
+     * Upstream errors are forwarded with their status and body; a timeout becomes 504,
+     * any other failure 500, as the frontend expects a JSON error body in every case.
      */
-    public ResponseEntity<String> getFollowing(String authorizationHeader) {
-        
-        // Target URL: https://api.spotify.com/v1/me
-        String targetUrl = SPOTIFY_API_V1 + "/me/following?type=artist&limit=40";
-
-        // Prepare the headers (forward the Authorization header)
-        HttpHeaders headers = new HttpHeaders();
-        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-        
-        // Create the HTTP entity
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        // Make the server-to-server call
+    private CompletableFuture<ResponseEntity<StreamingResponseBody>> stream(URI uri, String authorizationHeader,
+                                                                          String acceptEncoding, String label) {
+        return send(uri, authorizationHeader, null, HttpResponse.BodyHandlers.ofInputStream(), 0)
+            .thenApply(response -> {
+                if (response.statusCode() >= 400) {
+                    // Error bodies are small and logged: read them whole
+                    return streaming(toResponseEntity(response, decodeBody(response, readFully(response.body())), label));
+                }
+                boolean upstreamGzip = isGzip(response);
+                boolean passCompressed = upstreamGzip && acceptsGzip(acceptEncoding);
+                ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.statusCode())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                response.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(type -> builder.header(HttpHeaders.CONTENT_TYPE, type));
+                if (passCompressed) {
+                    builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+                }
+                if (passCompressed || !upstreamGzip) {
+                    response.headers().firstValue(HttpHeaders.CONTENT_LENGTH).ifPresent(length -> builder.header(HttpHeaders.CONTENT_LENGTH, length));
+                }
+                InputStream upstream = response.body();
+                return builder.body((StreamingResponseBody) output -> {
+                    try (InputStream in = passCompressed || !upstreamGzip ? upstream : new GZIPInputStream(upstream)) {
+                        copy(in, output);
+                    }
+                });
+            })
+            .exceptionally(e -> streaming(errorResponse(e, label)));
+    }
+
+    /**
+     * Wraps an already built (small) body, e.g. an error, for the streaming endpoints.
+     */
+    public static ResponseEntity<StreamingResponseBody> streaming(ResponseEntity<String> response) {
+        byte[] body = response.getBody() == null ? new byte[0] : response.getBody().getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(response.getStatusCode())
+            .headers(response.getHeaders())
+            .body(output -> output.write(body));
+    }
+
+    // Copy buffers are reused across requests instead of allocated per response
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = COPY_BUFFERS.poll();
+        if (buffer == null) {
+            buffer = new byte[COPY_BUFFER_SIZE];
+        }
         try {
-            ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-                targetUrl,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-            return spotifyResponse;
-            
-        } catch (HttpClientErrorException e) {
-            System.err.println("Spotify API Client Error (following): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-            
-        } catch (Exception e) {
-            System.err.println("Unexpected error during Profile proxy call: " + e.getMessage());
-            return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect for profile.\"}");
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            COPY_BUFFERS.offer(buffer);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) {
+        try (in) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    /**
+     * Catalog GET through the shared cache: a fresh entry is served locally; an expired one is revalidated
+     * with its ETag (304 = body reused). If Spotify fails or throttles, an expired body is served rather than an error.
+     * Only 200 responses are cached.
+     */
+    private CompletableFuture<ResponseEntity<String>> getCatalog(URI uri, String cacheKey, String authorizationHeader, String label) {
+        SpotifyCatalogCache.CachedResponse cached = catalogCache.get(cacheKey);
+        if (cached != null && cached.isFresh()) {
+            catalogCache.recordHit();
+            return CompletableFuture.completedFuture(fromCache(cached, "HIT"));
+        }
+
+        CompletableFuture<ResponseEntity<String>> call = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> running = catalogCache.joinOrRegister(cacheKey, call);
+        if (running != null) {
+            return running;
+        }
+        catalogCache.recordMiss();
+        logger.info("Catalog cache miss for " + cacheKey + (cached != null && cached.etag() != null ? " (revalidating)" : ""));
+
+        send(uri, authorizationHeader, cached != null ? cached.etag() : null)
+            .handle((response, error) -> {
+                try {
+                    if (error == null && response.statusCode() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                        return fromCache(catalogCache.renew(cacheKey, cached), "REVALIDATED");
+                    }
+                    if (error == null && response.statusCode() == HttpStatus.OK.value()) {
+                        String body = decodeBody(response);
+                        catalogCache.put(cacheKey, body,
+                            response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(MediaType.APPLICATION_JSON_VALUE),
+                            response.headers().firstValue(HttpHeaders.ETAG).orElse(null));
+                        return ResponseEntity.status(HttpStatus.OK)
+                            .headers(toResponseEntity(response, body, label).getHeaders())
+                            .header(CACHE_STATUS_HEADER, "MISS")
+                            .body(body);
+                    }
+                    boolean upstreamUnavailable = error != null || response.statusCode() >= 500
+                        || response.statusCode() == HttpStatus.TOO_MANY_REQUESTS.value();
+                    if (upstreamUnavailable && cached != null) {
+                        catalogCache.recordStaleServed();
+                        return fromCache(cached, "STALE");
+                    }
+                    return error != null ? errorResponse(error, label) : toResponseEntity(response, decodeBody(response), label);
+                } catch (RuntimeException e) {
+                    return errorResponse(e, label);
+                }
+            })
+            .whenComplete((result, error) -> {
+                catalogCache.complete(cacheKey, call);
+                if (error != null) {
+                    call.complete(errorResponse(error, label));
+                } else {
+                    call.complete(result);
+                }
+            });
+        return call;
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(URI uri, String authorizationHeader, String ifNoneMatch) {
+        return send(uri, authorizationHeader, ifNoneMatch, HttpResponse.BodyHandlers.ofByteArray(), 0);
+    }
+
+    /**
+     * Sends once the backoff window of the token (and the global one) has passed. A 429 opens the window and,
+     * every call being an idempotent GET, is retried up to spotify.throttle.max-retries times after it;
+     * the last 429 (or one whose window is too long to wait) is returned with its Retry-After.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(URI uri, String authorizationHeader, String ifNoneMatch,
+                                                        HttpResponse.BodyHandler<T> bodyHandler, int attempt) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+            .timeout(requestTimeout)
+            .header(HttpHeaders.AUTHORIZATION, authorizationHeader)
+            .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .GET();
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return throttle.awaitSlot(authorizationHeader)
+            .thenCompose(ready -> httpClient.sendAsync(request.build(), bodyHandler))
+            .thenCompose(response -> {
+                if (response.statusCode() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    if (attempt > 0) {
+                        throttle.recordRetrySucceeded();
+                    }
+                    return CompletableFuture.completedFuture(response);
+                }
+                throttle.onThrottled(authorizationHeader, retryAfterSeconds(response), attempt);
+                if (attempt >= maxThrottleRetries) {
+                    return CompletableFuture.completedFuture(response);
+                }
+                throttle.recordRetry();
+                return send(uri, authorizationHeader, ifNoneMatch, bodyHandler, attempt + 1)
+                    .handle((retried, error) -> error != null ? response : discard(response, retried));
+            });
+    }
+
+    // A streamed 429 that is replaced by its retry must release its connection
+    private static <T> HttpResponse<T> discard(HttpResponse<T> replaced, HttpResponse<T> retried) {
+        if (replaced.body() instanceof InputStream body) {
+            try {
+                body.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
         }
+        return retried;
     }
-        
-     public ResponseEntity<String> getArtistTopTracks(String artistId, String authorizationHeader) {
-        
-        // Build the target URL: https://api.spotify.com/v1/artists/{id}/top-tracks
-        String targetUrl = SPOTIFY_API_V1 + "/artists/" + artistId + "/top-tracks";
-         logger.info("target URL for artist top tracks: " + targetUrl);
-        // Spotify's top-tracks endpoint requires a country parameter
-        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(targetUrl)
-            .queryParam("limit", "10");
-        logger.info("Built URL for artist top tracks: " + builder.toUriString());
-        // 2. Prepare the headers (forward the Authorization header from the client)
-        HttpHeaders headers = new HttpHeaders();
-        // The authorizationHeader should be "Bearer <token>"
-        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-        headers.set(HttpHeaders.CONTENT_TYPE, "application/json");  
-        // 3. Create the HTTP entity (request body is null for GET)
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-
-        // 4. Make the server-to-server call to the API endpoint
+
+    private static Long retryAfterSeconds(HttpResponse<?> response) {
         try {
-            // This will throw HttpClientErrorException (for 4xx) or HttpServerErrorException (for 5xx)
-            ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-                builder.toUriString(),
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-
-            // If successful (status 200), return the entire response
-            return spotifyResponse;
-            
-        } catch (HttpClientErrorException e) {
-            // Forward 4xx errors with body
-            System.err.println("Spotify API Client Error (artist top tracks): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-            
-        } catch (HttpServerErrorException e) {
-            // Catch 5xx errors and forward them
-            System.err.println("Spotify API Server Error (artist top tracks): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-
-        } catch (Exception e) {
-            // Catch any other exceptions (e.g., network issues)
-            System.err.println("Unexpected error during Spotify proxy call (artist top tracks): " + e.getMessage());
-            return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect or unexpected error.\"}");
+            // Spotify sends delta-seconds; an HTTP-date falls back to exponential backoff
+            return response.headers().firstValue(HttpHeaders.RETRY_AFTER).map(String::trim).map(Long::parseLong).orElse(null);
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
-    public ResponseEntity<String> getArtistAlbums(String artistId, String authorizationHeader) {
-        
-    // Build the target URL: /artists/{id}/albums
-    String targetUrl = SPOTIFY_API_V1 + "/artists/" + artistId + "/albums";
-    logger.info("Target URL for artist albums: " + targetUrl);
-    
-    // Spotify's artists albums endpoint requires a country/market parameter and grouping
-    UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(targetUrl)
-        .queryParam("include_groups", "album,single,compilation") // Include common album types
-        .queryParam("market", "US") // Specify market for availability
-        .queryParam("limit", 50); // Fetch up to 50 albums/singles
-
-    logger.info("Built URL for artist albums: " + builder.toUriString());
-    
-    // 2. Prepare the headers (forward the Authorization header from the client)
-    HttpHeaders headers = new HttpHeaders();
-    // The authorizationHeader should be "Bearer <token>"
-    headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-    headers.set(HttpHeaders.CONTENT_TYPE, "application/json");  
-    
-    // 3. Create the HTTP entity (request body is null for GET)
-    HttpEntity<String> entity = new HttpEntity<>(headers);
-
-    // 4. Make the server-to-server call to the API endpoint
-    try {
-        // This will throw HttpClientErrorException (for 4xx) or HttpServerErrorException (for 5xx)
-        ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-            builder.toUriString(),
-            HttpMethod.GET,
-            entity,
-            String.class
-        );
-
-        // If successful (status 200), return the entire response
-        return spotifyResponse;
-        
-    } catch (HttpClientErrorException e) {
-        // Forward 4xx errors with body
-        System.err.println("Spotify API Client Error (artist albums): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-        return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-        
-    } catch (HttpServerErrorException e) {
-        // Catch 5xx errors and forward them
-        System.err.println("Spotify API Server Error (artist albums): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-        return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-
-    } catch (Exception e) {
-        // Catch any other exceptions (e.g., network issues)
-        System.err.println("Unexpected error during Spotify proxy call (artist albums): " + e.getMessage());
-        return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect or unexpected error.\"}");
+
+    private static ResponseEntity<String> fromCache(SpotifyCatalogCache.CachedResponse cached, String cacheStatus) {
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_TYPE, cached.contentType())
+            .header(CACHE_STATUS_HEADER, cacheStatus)
+            .body(cached.body());
+    }
+
+    private ResponseEntity<String> errorResponse(Throwable e, String label) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof SpotifyThrottle.ThrottledException throttled) {
+            System.err.println("Spotify rate limit (" + label + "): request refused, retry after " + throttled.getRetryAfterSeconds() + " s");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(throttled.getRetryAfterSeconds()))
+                .body("{\"error\": \"Spotify rate limit reached, retry later.\"}");
+        }
+        if (cause instanceof HttpTimeoutException) {
+            System.err.println("Spotify API timeout (" + label + ") after " + requestTimeout.toMillis() + " ms");
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"error\": \"Spotify did not answer in time.\"}");
+        }
+        System.err.println("Unexpected error during Spotify proxy call (" + label + "): " + cause);
+        return ResponseEntity.internalServerError()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("{\"error\": \"Backend proxy failed to connect or unexpected error.\"}");
     }
-}
 
+    private static ResponseEntity<String> toResponseEntity(HttpResponse<?> response, String body, String label) {
+        if (response.statusCode() >= 400) {
+            // Forward 4xx/5xx with body: a 401 must reach the frontend to trigger a token refresh
+            System.err.println("Spotify API Error (" + label + "): Status " + response.statusCode() + " - Body: " + body);
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.statusCode());
+        response.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(type -> builder.header(HttpHeaders.CONTENT_TYPE, type));
+        response.headers().firstValue(HttpHeaders.RETRY_AFTER).ifPresent(value -> builder.header(HttpHeaders.RETRY_AFTER, value));
+        return builder.body(body);
+    }
+
+    // The JDK client does not decompress by itself
+    private static String decodeBody(HttpResponse<byte[]> response) {
+        return decodeBody(response, response.body());
+    }
+
+    private static String decodeBody(HttpResponse<?> response, byte[] bytes) {
+        if (!isGzip(response)) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid gzip body from Spotify", e);
+        }
+    }
 
-public ResponseEntity<String> getAlbumTracks(String albumId, String authorizationHeader) {
-        
-    // Build the target URL: /albums/{id}/tracks
-    String targetUrl = SPOTIFY_API_V1 + "/albums/" + albumId + "/tracks";
-    logger.info("Target URL for album tracks: " + targetUrl);
-    
-    // Spotify's endpoint for album tracks
-    UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(targetUrl)
-        .queryParam("market", "US") // Specify market for availability
-        .queryParam("limit", 50); // Fetch up to 50 tracks
-
-    logger.info("Built URL for album tracks: " + builder.toUriString());
-    
-    // 2. Prepare the headers (forward the Authorization header from the client)
-    HttpHeaders headers = new HttpHeaders();
-    headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
-    headers.set(HttpHeaders.CONTENT_TYPE, "application/json"); 
-    
-    // 3. Create the HTTP entity (request body is null for GET)
-    HttpEntity<String> entity = new HttpEntity<>(headers);
-
-    // 4. Make the server-to-server call to the API endpoint
-    try {
-        ResponseEntity<String> spotifyResponse = restTemplate.exchange(
-            builder.toUriString(),
-            HttpMethod.GET,
-            entity,
-            String.class
-        );
-
-        // If successful (status 200), return the entire response
-        return spotifyResponse;
-        
-    } catch (HttpClientErrorException e) {
-        // Forward 4xx errors with body
-        System.err.println("Spotify API Client Error (album tracks): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-        return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-        
-    } catch (HttpServerErrorException e) {
-        // Catch 5xx errors and forward them
-        System.err.println("Spotify API Server Error (album tracks): Status " + e.getStatusCode() + " - Body: " + e.getResponseBodyAsString());
-        return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsString());
-
-    } catch (Exception e) {
-        // Catch any other exceptions (e.g., network issues)
-        System.err.println("Unexpected error during Spotify proxy call (album tracks): " + e.getMessage());
-        return ResponseEntity.internalServerError().body("{\"error\": \"Backend proxy failed to connect or unexpected error.\"}");
+    private static boolean isGzip(HttpResponse<?> response) {
+        return response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
     }
 }
-}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.music.OneDrop.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backoff windows opened by Spotify 429 responses, so the proxy waits instead of the browser hammering it.
+ * A 429 closes its access token for Retry-After seconds. Spotify counts its rate limit per application,
+ * so as soon as two different tokens are throttled close together the window becomes global.
+ * Requests arriving during a window are held (without a thread) until it ends, released with jitter so
+ * they do not come back as one burst; a wait longer than maxHold is refused immediately instead.
+ */
+public class SpotifyThrottle {
+
+    // Two tokens throttled within this delay: the application-wide limit is reached
+    private static final long GLOBAL_TRIGGER_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // Spread of the releases at the end of a window
+    private static final long RELEASE_JITTER_MILLIS = 500;
+    // First backoff when Spotify omits Retry-After, doubled on each attempt
+    private static final long DEFAULT_BACKOFF_MILLIS = 1000;
+
+    private final long maxHoldNanos;
+    // Token key -> end of its window (System.nanoTime)
+    private final Map<String, Long> tokenWindows = new ConcurrentHashMap<>();
+    private volatile long globalWindowEnd = System.nanoTime();
+    private volatile String lastThrottledToken;
+    private volatile long lastThrottledAt = System.nanoTime() - GLOBAL_TRIGGER_NANOS;
+
+    private final AtomicLong throttledResponses = new AtomicLong();
+    private final AtomicLong globalWindows = new AtomicLong();
+    private final AtomicLong heldRequests = new AtomicLong();
+    private final AtomicLong heldMillis = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong retriesSucceeded = new AtomicLong();
+
+    public SpotifyThrottle(Duration maxHold) {
+        this.maxHoldNanos = maxHold.toNanos();
+    }
+
+    /**
+     * Completes when the request may be sent: at once outside any window, at the end of the window otherwise.
+     * Completes exceptionally with ThrottledException when the wait would exceed maxHold.
+     */
+    public CompletableFuture<Void> awaitSlot(String authorizationHeader) {
+        long now = System.nanoTime();
+        Long tokenWindowEnd = tokenWindows.get(tokenKey(authorizationHeader));
+        long waitNanos = Math.max(globalWindowEnd - now, tokenWindowEnd != null ? tokenWindowEnd - now : 0);
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (waitNanos > maxHoldNanos) {
+            rejectedRequests.incrementAndGet();
+            return CompletableFuture.failedFuture(new ThrottledException(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+        }
+        long delayMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos) + ThreadLocalRandom.current().nextLong(RELEASE_JITTER_MILLIS);
+        heldRequests.incrementAndGet();
+        heldMillis.addAndGet(delayMillis);
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Records a 429 and opens the window. Without Retry-After, backs off exponentially with the attempt number.
+     */
+    public void onThrottled(String authorizationHeader, Long retryAfterSeconds, int attempt) {
+        throttledResponses.incrementAndGet();
+        long backoffMillis = retryAfterSeconds != null
+            ? TimeUnit.SECONDS.toMillis(retryAfterSeconds)
+            : DEFAULT_BACKOFF_MILLIS << Math.min(attempt, 5);
+        long now = System.nanoTime();
+        long windowEnd = now + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+        String token = tokenKey(authorizationHeader);
+        tokenWindows.merge(token, windowEnd, Math::max);
+
+        String previousToken = lastThrottledToken;
+        if (previousToken != null && !previousToken.equals(token) && now - lastThrottledAt < GLOBAL_TRIGGER_NANOS) {
+            if (windowEnd - globalWindowEnd > 0) {
+                globalWindowEnd = windowEnd;
+                globalWindows.incrementAndGet();
+            }
+        }
+        lastThrottledToken = token;
+        lastThrottledAt = now;
+        // Expired windows are dropped here rather than on every read
+        tokenWindows.values().removeIf(end -> end - now <= 0);
+    }
+
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public void recordRetrySucceeded() {
+        retriesSucceeded.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("throttledResponses", throttledResponses.get());
+        stats.put("retries", retries.get());
+        stats.put("retriesSucceeded", retriesSucceeded.get());
+        stats.put("heldRequests", heldRequests.get());
+        stats.put("heldMillis", heldMillis.get());
+        stats.put("rejectedRequests", rejectedRequests.get());
+        stats.put("globalWindows", globalWindows.get());
+        stats.put("globalWindowRemainingMillis", Math.max(0, TimeUnit.NANOSECONDS.toMillis(globalWindowEnd - now)));
+        stats.put("throttledTokens", tokenWindows.values().stream().filter(end -> end - now > 0).count());
+        return stats;
+    }
+
+    // The token itself is not kept in memory; a collision only shares a window between two users
+    private static String tokenKey(String authorizationHeader) {
+        return authorizationHeader == null ? "" : Integer.toHexString(authorizationHeader.hashCode()) + ":" + authorizationHeader.length();
+    }
+
+    /**
+     * The backoff window is longer than the proxy is willing to hold a request.
+     */
+    public static class ThrottledException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public ThrottledException(long retryAfterSeconds) {
+            super("Spotify rate limit: retry after " + retryAfterSeconds + " s");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dérive un jeu de pistes plus grossier à partir d'un jeu plus fin, sans relancer Spleeter :
+ * chaque piste produite est la somme échantillon par échantillon de ses pistes sources
+ * (ex: accompaniment = drums + bass + other). Lecture et écriture se font par blocs,
+ * la mémoire utilisée ne dépend pas de la durée du morceau.
+ */
+final class StemMixer {
+
+    private static final int FRAMES_PER_BLOCK = 4096;
+
+    private StemMixer() {}
+
+    /**
+     * Produit dans 'targetFolder' les pistes de la recette à partir de celles de 'sourceFolder'.
+     * Chaque fichier est écrit sous un nom temporaire puis renommé : une piste visible est toujours complète.
+     */
+    static void derive(Path sourceFolder, Path targetFolder, Map<String, List<String>> recipe) throws IOException {
+        Files.createDirectories(targetFolder);
+        for (Map.Entry<String, List<String>> stem : recipe.entrySet()) {
+            List<Path> inputs = new ArrayList<>();
+            for (String source : stem.getValue()) {
+                inputs.add(sourceFolder.resolve(source + ".wav"));
+            }
+            Path target = targetFolder.resolve(stem.getKey() + ".wav");
+            Path partial = targetFolder.resolve(stem.getKey() + ".wav.part");
+            try {
+                if (inputs.size() == 1) {
+                    Files.copy(inputs.get(0), partial, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    mix(inputs, partial);
+                }
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    /**
+     * Additionne des WAV de même format (canaux, fréquence, encodage) dans 'output'.
+     * Si les durées diffèrent, le mix s'arrête à la plus courte.
+     */
+    static void mix(List<Path> inputs, Path output) throws IOException {
+        List<WavHeader> headers = new ArrayList<>();
+        for (Path input : inputs) {
+            headers.add(WavHeader.read(input));
+        }
+        WavHeader first = headers.get(0);
+        long frames = Long.MAX_VALUE;
+        for (int i = 0; i < headers.size(); i++) {
+            WavHeader header = headers.get(i);
+            if (header.getAudioFormat() != first.getAudioFormat() || header.getChannels() != first.getChannels()
+                    || header.getSampleRate() != first.getSampleRate() || header.getBitsPerSample() != first.getBitsPerSample()) {
+                throw new IOException("Stem format mismatch, cannot mix " + inputs.get(i) + " with " + inputs.get(0));
+            }
+            frames = Math.min(frames, header.getFrameCount());
+        }
+
+        int blockAlign = first.getBlockAlign();
+        WavHeader outputHeader = new WavHeader(first.getAudioFormat(), first.getChannels(), first.getSampleRate(),
+                first.getBitsPerSample(), WavHeader.CANONICAL_HEADER_SIZE, frames * blockAlign);
+
+        List<FileChannel> channels = new ArrayList<>();
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < inputs.size(); i++) {
+                FileChannel channel = FileChannel.open(inputs.get(i), StandardOpenOption.READ);
+                channels.add(channel);
+                channel.position(headers.get(i).getDataOffset());
+            }
+            writeFully(out, outputHeader.toCanonicalHeader());
+
+            ByteBuffer[] inBuffers = new ByteBuffer[inputs.size()];
+            for (int i = 0; i < inBuffers.length; i++) {
+                inBuffers[i] = ByteBuffer.allocate(FRAMES_PER_BLOCK * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer outBuffer = ByteBuffer.allocate(FRAMES_PER_BLOCK * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+            int samplesPerFrame = first.getChannels();
+
+            long remainingFrames = frames;
+            while (remainingFrames > 0) {
+                int blockFrames = (int) Math.min(FRAMES_PER_BLOCK, remainingFrames);
+                for (int i = 0; i < inBuffers.length; i++) {
+                    inBuffers[i].clear().limit(blockFrames * blockAlign);
+                    readFully(channels.get(i), inBuffers[i]);
+                    inBuffers[i].flip();
+                }
+                outBuffer.clear();
+                for (int s = 0; s < blockFrames * samplesPerFrame; s++) {
+                    double sum = 0;
+                    for (int i = 0; i < inBuffers.length; i++) {
+                        sum += headers.get(i).readSample(inBuffers[i]);
+                    }
+                    outputHeader.writeSample(outBuffer, sum);
+                }
+                writeFully(out, outBuffer.flip());
+                remainingFrames -= blockFrames;
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of stem data");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.music.OneDrop.Service;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Modèles de séparation Spleeter et disposition des pistes sur disque.
+ * Le modèle 2stems (historique) reste à la racine du dossier de la vidéo ; les autres
+ * sont rangés dans un sous-dossier à leur nom (ex: tracks/{videoId}/4stems/).
+ */
+public enum StemModel {
+    TWO_STEMS("2stems", "vocals", "accompaniment"),
+    FOUR_STEMS("4stems", "vocals", "drums", "bass", "other"),
+    FIVE_STEMS("5stems", "vocals", "drums", "bass", "piano", "other");
+
+    public static final StemModel DEFAULT = TWO_STEMS;
+
+    private final String name;
+    private final List<String> stems;
+
+    StemModel(String name, String... stems) {
+        this.name = name;
+        this.stems = List.of(stems);
+    }
+
+    public String getName() { return name; }
+    public List<String> getStems() { return stems; }
+
+    public String getSpleeterModel() {
+        return "spleeter:" + name;
+    }
+
+    /**
+     * @throws IllegalArgumentException si le nom ne correspond à aucun modèle.
+     */
+    public static StemModel fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        return Arrays.stream(values())
+                .filter(model -> model.name.equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stem model: " + name));
+    }
+
+    /**
+     * Clé de tâche : le videoId seul pour le modèle par défaut (compatibilité), "videoId/4stems" sinon.
+     */
+    public String jobKey(String videoId) {
+        return this == DEFAULT ? videoId : videoId + "/" + name;
+    }
+
+    public Path folderIn(Path videoFolder) {
+        return this == DEFAULT ? videoFolder : videoFolder.resolve(name);
+    }
+
+    /**
+     * Toutes les pistes du modèle sont présentes dans le dossier de la vidéo.
+     */
+    public boolean isCompleteIn(Path videoFolder) {
+        File folder = folderIn(videoFolder).toFile();
+        return stems.stream().allMatch(stem -> new File(folder, stem + ".wav").isFile());
+    }
+
+    /**
+     * Recette pour obtenir ce modèle en mixant les pistes d'un modèle plus fin :
+     * pour chaque piste produite, la liste des pistes sources à additionner.
+     * Vide si 'finer' ne permet pas de dériver ce modèle.
+     */
+    public Optional<Map<String, List<String>>> derivationFrom(StemModel finer) {
+        if (finer == this) {
+            return Optional.empty();
+        }
+        Map<String, List<String>> recipe = new LinkedHashMap<>();
+        List<String> unassigned = new ArrayList<>(finer.stems);
+        // Pistes communes : copiées telles quelles (sauf "other", qui absorbe les pistes en trop)
+        for (String stem : stems) {
+            if (finer.stems.contains(stem) && !isCatchAll(stem)) {
+                recipe.put(stem, List.of(stem));
+                unassigned.remove(stem);
+            }
+        }
+        // Une seule piste "fourre-tout" (accompaniment, other) reçoit la somme du reste
+        List<String> catchAll = stems.stream().filter(stem -> !recipe.containsKey(stem)).toList();
+        if (catchAll.size() != 1 || !isCatchAll(catchAll.get(0)) || unassigned.isEmpty()) {
+            return Optional.empty();
+        }
+        recipe.put(catchAll.get(0), List.copyOf(unassigned));
+        return Optional.of(recipe);
+    }
+
+    private static boolean isCatchAll(String stem) {
+        return stem.equals("accompaniment") || stem.equals("other");
+    }
+}
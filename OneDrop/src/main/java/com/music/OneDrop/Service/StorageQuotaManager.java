@@ -0,0 +1,281 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Gestion du quota disque des pistes séparées.
+ * Suit la taille et le dernier accès (lecture via serveTrack) de chaque dossier de pistes ;
+ * au-delà du seuil haut, les dossiers les moins récemment écoutés sont supprimés
+ * jusqu'au seuil bas et les entrées correspondantes passent en EVICTED.
+ */
+@Component
+public class StorageQuotaManager {
+
+    // Le dernier accès est aussi conservé dans la date de modification du dossier (survit au redémarrage).
+    // On ne la réécrit qu'au plus une fois par minute pour ne pas toucher le disque à chaque requête.
+    private static final long ACCESS_TOUCH_INTERVAL_MS = 60_000;
+
+    private static final class TrackUsage {
+        final long bytes;
+        volatile long lastAccessMillis;
+
+        TrackUsage(long bytes, long lastAccessMillis) {
+            this.bytes = bytes;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    private final TaskStatusManager statusManager;
+    private final VideoRepository videoRepository;
+    private final LibrarySearchIndex searchIndex;
+
+    // Clé: videoId, Valeur: taille et dernier accès du dossier de pistes
+    private final Map<String, TrackUsage> usages = new ConcurrentHashMap<>();
+
+    // Verrou commun à l'éviction et au démarrage des tâches (tryMarkStarted, liaison d'un doublon) :
+    // aucune tâche ne peut prendre un dossier entre la vérification "libre" et sa suppression.
+    // ReentrantLock plutôt que synchronized : il est tenu pendant des accès JDBC et disque,
+    // un thread virtuel qui attend ou le détient n'épingle pas son thread porteur
+    private final ReentrantLock folderLock = new ReentrantLock();
+
+    // Une seule passe d'éviction à la fois (recordStored peut être appelé par plusieurs tâches)
+    private final ReentrantLock quotaLock = new ReentrantLock();
+
+    @Value("${onedrop.storage.high-water-mb:20480}")
+    private long highWaterMb;
+
+    @Value("${onedrop.storage.low-water-mb:16384}")
+    private long lowWaterMb;
+
+    // Dossier de pistes partagé : seul le nœud API (ou autonome) mesure et évince, un worker n'a qu'une vue partielle
+    @Value("${onedrop.role:standalone}")
+    private String role;
+
+    public StorageQuotaManager(TaskStatusManager statusManager, VideoRepository videoRepository, LibrarySearchIndex searchIndex) {
+        this.statusManager = statusManager;
+        this.videoRepository = videoRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Mesure les dossiers existants au démarrage, puis applique le quota.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scanTracksDirectory() {
+        if (NodeRole.fromName(role) == NodeRole.WORKER) {
+            return;
+        }
+        File[] folders = AudioProcessorService.PERMANENT_TRACKS_DIR.toFile().listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders) {
+                usages.put(folder.getName(), new TrackUsage(folderSize(folder.toPath()), folder.lastModified()));
+            }
+        }
+        System.out.println("Storage usage at startup: " + usedBytes() / (1024 * 1024) + " MB in " + usages.size() + " track folders");
+        enforceQuota();
+    }
+
+    /**
+     * Enregistre une lecture de piste (appelé par serveTrack).
+     */
+    public void recordAccess(String videoId) {
+        TrackUsage usage = usages.get(videoId);
+        if (usage == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - usage.lastAccessMillis > ACCESS_TOUCH_INTERVAL_MS) {
+            try {
+                Files.setLastModifiedTime(trackFolder(videoId), FileTime.fromMillis(now));
+            } catch (IOException e) {
+                System.err.println("Could not persist last access for " + videoId + ": " + e.getMessage());
+            }
+        }
+        usage.lastAccessMillis = now;
+    }
+
+    /**
+     * Enregistre un dossier de pistes nouvellement produit, puis applique le quota.
+     */
+    public void recordStored(String videoId) {
+        if (NodeRole.fromName(role) == NodeRole.WORKER) {
+            return;
+        }
+        usages.put(videoId, new TrackUsage(folderSize(trackFolder(videoId)), System.currentTimeMillis()));
+        enforceQuota();
+    }
+
+    /**
+     * Oublie un dossier supprimé en dehors du quota (ex: réconciliation au démarrage).
+     */
+    public void forget(String videoId) {
+        usages.remove(videoId);
+    }
+
+    /**
+     * Déclare la tâche en attente, sauf si une tâche est déjà en cours pour cette vidéo (tous modèles confondus :
+     * ils partagent le dossier de pistes). Vérification et déclaration se font d'un bloc, sous le verrou de l'éviction ;
+     * à appeler avant de lire ou d'écrire l'entrée de la vidéo : une éviction déjà commencée se termine d'abord.
+     * @return false si une tâche était déjà en cours (rien n'est déclaré).
+     */
+    public boolean tryMarkStarted(String videoId, StemModel model) {
+        folderLock.lock();
+        try {
+            if (statusManager.hasActiveTask(videoId)) {
+                return false;
+            }
+            statusManager.updateStatus(model.jobKey(videoId), Status.PENDING);
+            return true;
+        } finally {
+            folderLock.unlock();
+        }
+    }
+
+    /**
+     * Exécute une action qui s'appuie sur un dossier de pistes existant (ex: liaison d'un doublon)
+     * sans qu'une éviction puisse le supprimer pendant ce temps.
+     */
+    <T> T withFolderLock(Supplier<T> action) {
+        folderLock.lock();
+        try {
+            return action.get();
+        } finally {
+            folderLock.unlock();
+        }
+    }
+
+    public long usedBytes() {
+        return usages.values().stream().mapToLong(u -> u.bytes).sum();
+    }
+
+    /**
+     * Si l'utilisation dépasse le seuil haut, évince les dossiers les moins récemment écoutés
+     * jusqu'à repasser sous le seuil bas. Les tâches en cours ne sont jamais évincées.
+     */
+    public void enforceQuota() {
+        quotaLock.lock();
+        try {
+            enforceQuotaLocked();
+        } finally {
+            quotaLock.unlock();
+        }
+    }
+
+    private void enforceQuotaLocked() {
+        long highWaterBytes = highWaterMb * 1024 * 1024;
+        long lowWaterBytes = Math.min(lowWaterMb, highWaterMb) * 1024 * 1024;
+        long used = usedBytes();
+        if (used <= highWaterBytes) {
+            return;
+        }
+
+        List<Map.Entry<String, TrackUsage>> candidates = new ArrayList<>(usages.entrySet());
+        candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccessMillis));
+
+        for (Map.Entry<String, TrackUsage> candidate : candidates) {
+            if (used <= lowWaterBytes) {
+                break;
+            }
+            String videoId = candidate.getKey();
+            folderLock.lock();
+            try {
+                if (isBusy(videoId)) {
+                    continue;
+                }
+                evict(videoId);
+                used -= candidate.getValue().bytes;
+            } catch (IOException e) {
+                System.err.println("Eviction failed for " + videoId + ": " + e.getMessage());
+            } finally {
+                folderLock.unlock();
+            }
+        }
+        System.out.println("Storage quota enforced: " + used / (1024 * 1024) + " MB used (high-water " + highWaterMb + " MB)");
+    }
+
+    private void evict(String videoId) throws IOException {
+        deleteRecursively(trackFolder(videoId));
+        usages.remove(videoId);
+
+        markEvicted(videoId);
+        Optional<VideoEntry> optionalEntry = videoRepository.findById(videoId);
+        if (optionalEntry.isPresent()) {
+            VideoEntry entry = optionalEntry.get();
+            entry.setStatus(Status.EVICTED.name());
+            videoRepository.save(entry);
+            searchIndex.put(entry);
+        }
+        // Les doublons liés à ces pistes les perdent aussi ; ils seront re-traités sous leur propre id
+        for (VideoEntry alias : videoRepository.findByStemsVideoId(videoId)) {
+            alias.setStatus(Status.EVICTED.name());
+            alias.setStemsVideoId(null);
+            videoRepository.save(alias);
+            searchIndex.put(alias);
+            markEvicted(alias.getVideoId());
+        }
+        System.out.println("EVICTED stems for: " + videoId);
+    }
+
+    // Toutes les clés de tâche de la vidéo (videoId et videoId/modèle) : aucun modèle ne doit rester COMPLETED
+    private void markEvicted(String videoId) {
+        statusManager.updateStatus(videoId, Status.EVICTED);
+        for (StemModel model : StemModel.values()) {
+            String jobKey = model.jobKey(videoId);
+            if (model != StemModel.DEFAULT && statusManager.getStatus(jobKey) != null) {
+                statusManager.updateStatus(jobKey, Status.EVICTED);
+            }
+        }
+    }
+
+    // Une tâche en cours (ou en attente) écrit dans le dossier : ne pas y toucher.
+    // Les doublons liés partagent ce dossier : leurs tâches (autres modèles) y écrivent aussi
+    private boolean isBusy(String videoId) {
+        return statusManager.hasActiveTask(videoId)
+                || videoRepository.findByStemsVideoId(videoId).stream()
+                        .anyMatch(alias -> statusManager.hasActiveTask(alias.getVideoId()));
+    }
+
+    private static Path trackFolder(String videoId) {
+        return AudioProcessorService.PERMANENT_TRACKS_DIR.resolve(videoId);
+    }
+
+    private static long folderSize(Path folder) {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * "Téléchargement" synthétique pour les tests de charge sans réseau : un WAV stéréo 16 bits
+ * (accord de sinusoïdes) généré après un délai configurable. Le contenu ne dépend que du videoId :
+ * deux ids différents ne sont jamais pris pour des doublons, une relance produit le même fichier.
+ */
+@Component
+@ConditionalOnProperty(name = "onedrop.engine.downloader", havingValue = "synthetic")
+public class SyntheticDownloader implements AudioDownloader {
+
+    private static final int SAMPLE_RATE = 44_100;
+    private static final int CHANNELS = 2;
+    private static final int BITS_PER_SAMPLE = 16;
+    private static final int FRAMES_PER_BLOCK = 4096;
+
+    private final int durationSeconds;
+    private final long latencyMs;
+
+    public SyntheticDownloader(@Value("${onedrop.synthetic.duration-seconds:30}") int durationSeconds,
+                               @Value("${onedrop.synthetic.download-latency-ms:500}") long latencyMs) {
+        this.durationSeconds = durationSeconds;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public void download(String videoId, Path targetWav) throws IOException, InterruptedException {
+        Thread.sleep(latencyMs);
+
+        long frames = (long) durationSeconds * SAMPLE_RATE;
+        WavHeader header = new WavHeader(WavHeader.FORMAT_PCM, CHANNELS, SAMPLE_RATE, BITS_PER_SAMPLE,
+                WavHeader.CANONICAL_HEADER_SIZE, frames * CHANNELS * (BITS_PER_SAMPLE / 8));
+        // Fondamentale entre 110 et 440 Hz tirée de l'id, puis tierce et quinte
+        int seed = videoId.hashCode();
+        double root = 110.0 + Math.floorMod(seed, 331);
+        double detune = 1.0 + Math.floorMod(seed >>> 9, 17) / 1000.0;
+
+        ByteBuffer block = ByteBuffer.allocate(FRAMES_PER_BLOCK * header.getBlockAlign()).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel out = FileChannel.open(targetWav, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header.toCanonicalHeader());
+            for (long frame = 0; frame < frames; frame++) {
+                double t = (double) frame / SAMPLE_RATE;
+                double low = 0.3 * Math.sin(2 * Math.PI * root * t);
+                double high = 0.2 * Math.sin(2 * Math.PI * root * 1.25 * t) + 0.1 * Math.sin(2 * Math.PI * root * 1.5 * detune * t);
+                header.writeSample(block, low + high);
+                header.writeSample(block, low + 0.8 * high);
+                if (!block.hasRemaining()) {
+                    writeFully(out, block.flip());
+                    block.clear();
+                }
+            }
+            writeFully(out, block.flip());
+        }
+        System.out.println("Synthetic source generated for " + videoId + " (" + durationSeconds + " s)");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
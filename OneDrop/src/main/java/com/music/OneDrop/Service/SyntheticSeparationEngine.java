@@ -0,0 +1,173 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Séparation synthétique pour les tests de charge du pipeline : chaque piste est l'entrée passée
+ * dans un filtre passe-bas à fréquence de coupure propre à la piste (sortie déterministe, même format),
+ * avec une latence et un coût CPU configurables pour imiter Spleeter sans TensorFlow.
+ */
+@Component
+@ConditionalOnProperty(name = "onedrop.engine.separator", havingValue = "synthetic")
+public class SyntheticSeparationEngine implements SeparationEngine {
+
+    private static final int FRAMES_PER_BLOCK = 4096;
+
+    private final long latencyMs;
+    private final long cpuMsPerAudioSecond;
+
+    public SyntheticSeparationEngine(@Value("${onedrop.synthetic.separation-latency-ms:0}") long latencyMs,
+                                     @Value("${onedrop.synthetic.separation-cpu-ms-per-audio-second:100}") long cpuMsPerAudioSecond) {
+        this.latencyMs = latencyMs;
+        this.cpuMsPerAudioSecond = cpuMsPerAudioSecond;
+    }
+
+    @Override
+    public Path separate(Path inputWav, Path outputDir, StemModel model, CpuGovernor.Slot cpu) throws IOException, InterruptedException {
+        // Un seul thread de calcul : toujours dans la limite de la place attribuée par le gouverneur
+        long cpuStart = CpuClock.now();
+        Thread.sleep(latencyMs);
+
+        WavHeader header = WavHeader.read(inputWav);
+        Path stemsFolder = SeparationEngine.stemsFolderFor(inputWav, outputDir);
+        Files.createDirectories(stemsFolder);
+
+        List<String> stems = model.getStems();
+        List<Path> partials = new ArrayList<>();
+        List<FileChannel> outputs = new ArrayList<>();
+        try {
+            for (String stem : stems) {
+                Path partial = stemsFolder.resolve(stem + ".wav.part");
+                partials.add(partial);
+                FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                outputs.add(out);
+                writeFully(out, header.toCanonicalHeader());
+            }
+            filterInto(inputWav, header, outputs);
+        } catch (IOException e) {
+            for (FileChannel out : outputs) {
+                out.close();
+            }
+            for (Path partial : partials) {
+                Files.deleteIfExists(partial);
+            }
+            throw e;
+        } finally {
+            for (FileChannel out : outputs) {
+                out.close();
+            }
+        }
+        // Pistes publiées une fois complètes : vocals.wav visible vaut séparation réussie
+        for (int i = 0; i < stems.size(); i++) {
+            Files.move(partials.get(i), stemsFolder.resolve(stems.get(i) + ".wav"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Complète jusqu'au coût CPU demandé (le filtrage ci-dessus en fait déjà partie)
+        CpuClock.burnUntil(cpuStart + (long) (header.getDurationSeconds() * cpuMsPerAudioSecond * 1_000_000L));
+        return stemsFolder;
+    }
+
+    /**
+     * Un passe-bas du premier ordre par piste et par canal : coupure de plus en plus haute
+     * d'une piste à l'autre, gain réparti pour que la somme reste du même ordre que l'entrée.
+     */
+    private static void filterInto(Path inputWav, WavHeader header, List<FileChannel> outputs) throws IOException {
+        int stemCount = outputs.size();
+        int channels = header.getChannels();
+        double[] alphas = new double[stemCount];
+        for (int s = 0; s < stemCount; s++) {
+            double cutoffHz = 200.0 * Math.pow(4, s);
+            alphas[s] = 1 - Math.exp(-2 * Math.PI * cutoffHz / header.getSampleRate());
+        }
+        double gain = 1.0 / stemCount;
+        double[][] state = new double[stemCount][channels];
+
+        int blockAlign = header.getBlockAlign();
+        ByteBuffer in = ByteBuffer.allocate(FRAMES_PER_BLOCK * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer[] outBuffers = new ByteBuffer[stemCount];
+        for (int s = 0; s < stemCount; s++) {
+            outBuffers[s] = ByteBuffer.allocate(FRAMES_PER_BLOCK * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        try (FileChannel source = FileChannel.open(inputWav, StandardOpenOption.READ)) {
+            source.position(header.getDataOffset());
+            long remainingFrames = header.getFrameCount();
+            while (remainingFrames > 0) {
+                int blockFrames = (int) Math.min(FRAMES_PER_BLOCK, remainingFrames);
+                in.clear().limit(blockFrames * blockAlign);
+                while (in.hasRemaining()) {
+                    if (source.read(in) < 0) {
+                        throw new IOException("Unexpected end of audio data in " + inputWav);
+                    }
+                }
+                in.flip();
+                for (ByteBuffer out : outBuffers) {
+                    out.clear();
+                }
+                for (int frame = 0; frame < blockFrames; frame++) {
+                    for (int c = 0; c < channels; c++) {
+                        double sample = header.readSample(in);
+                        for (int s = 0; s < stemCount; s++) {
+                            state[s][c] += alphas[s] * (sample - state[s][c]);
+                            header.writeSample(outBuffers[s], state[s][c] * gain);
+                        }
+                    }
+                }
+                for (int s = 0; s < stemCount; s++) {
+                    writeFully(outputs.get(s), outBuffers[s].flip());
+                }
+                remainingFrames -= blockFrames;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Temps CPU du thread courant (horloge murale si la JVM ne le mesure pas).
+     */
+    private static final class CpuClock {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        private static final boolean SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+        private static volatile double sink;
+
+        static long now() {
+            return SUPPORTED ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+
+        static void burnUntil(long deadline) throws InterruptedException {
+            double accumulator = 0;
+            long i = 0;
+            while (now() < deadline) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Synthetic separation interrupted");
+                }
+                for (int j = 0; j < 10_000; j++) {
+                    accumulator += Math.sqrt(++i);
+                }
+            }
+            sink = accumulator; // Empêche le JIT d'éliminer la boucle
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.music.OneDrop.Service;
 
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -14,7 +15,8 @@ public class TaskStatusManager {
         DOWNLOADING,   // Téléchargement du fichier audio
         SEPARATING,    // Séparation des pistes audio (Spleeter)
         COMPLETED,     // Terminé avec succès
-        FAILED         // Échec du traitement
+        FAILED,        // Échec du traitement
+        EVICTED        // Pistes supprimées par le quota disque (re-séparation à la demande)
     }
 
     // Map thread-safe pour stocker le statut de chaque ID de vidéo
@@ -40,6 +42,35 @@ public class TaskStatusManager {
         return taskStatuses.get(videoId);
     }
     
+    /**
+     * Indique si au moins une tâche est en attente ou en cours (téléchargement/séparation).
+     */
+    public boolean hasActiveTasks() {
+        return taskStatuses.values().stream()
+                .anyMatch(status -> status == Status.PENDING || status == Status.DOWNLOADING || status == Status.SEPARATING);
+    }
+
+    /**
+     * Indique si une tâche est en attente ou en cours pour cette vidéo, quel que soit le modèle
+     * (clés "videoId" et "videoId/modèle", voir StemModel.jobKey).
+     */
+    public boolean hasActiveTask(String videoId) {
+        String modelKeyPrefix = videoId + "/";
+        return taskStatuses.entrySet().stream()
+                .filter(e -> e.getKey().equals(videoId) || e.getKey().startsWith(modelKeyPrefix))
+                .anyMatch(e -> e.getValue() == Status.PENDING || e.getValue() == Status.DOWNLOADING || e.getValue() == Status.SEPARATING);
+    }
+
+    /**
+     * Clés des tâches en attente ou en cours (clés "videoId" et "videoId/modèle").
+     */
+    public List<String> getActiveTaskKeys() {
+        return taskStatuses.entrySet().stream()
+                .filter(e -> e.getValue() == Status.PENDING || e.getValue() == Status.DOWNLOADING || e.getValue() == Status.SEPARATING)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
     /**
      * Supprime une tâche terminée ou échouée de la mémoire (optionnel).
      * @param videoId L'ID de la vidéo.
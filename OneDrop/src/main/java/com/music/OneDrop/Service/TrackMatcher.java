@@ -0,0 +1,91 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Dto.VideoDto;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Score de ressemblance entre une piste Spotify et une vidéo YouTube (0 à 1).
+ * La durée est le critère le plus fiable (un clip ou un live dure rarement exactement la même chose),
+ * complété par les mots du titre, la présence de l'artiste et une pénalité pour les versions alternatives.
+ */
+final class TrackMatcher {
+
+    private static final double DURATION_WEIGHT = 0.45;
+    private static final double TITLE_WEIGHT = 0.35;
+    private static final double ARTIST_WEIGHT = 0.20;
+
+    // Écart de durée toléré sans pénalité, puis score nul au-delà de 30 s supplémentaires
+    private static final long DURATION_TOLERANCE_SECONDS = 3;
+    private static final double DURATION_FALLOFF_SECONDS = 30.0;
+
+    // Versions à éviter, sauf si la piste Spotify en est une elle-même
+    private static final Set<String> ALTERNATE_VERSION_WORDS = Set.of(
+            "live", "cover", "karaoke", "remix", "instrumental", "reaction", "slowed", "sped", "nightcore", "8d", "acoustic");
+    private static final double ALTERNATE_VERSION_PENALTY = 0.5;
+
+    private TrackMatcher() {
+    }
+
+    static double score(String trackName, List<String> artists, long durationMs, VideoDto video) {
+        Set<String> videoWords = words(video.getTitle());
+        Set<String> videoAndChannelWords = new HashSet<>(videoWords);
+        videoAndChannelWords.addAll(words(video.getChannelTitle()));
+        Set<String> trackWords = words(trackName);
+
+        double titleScore = trackWords.isEmpty() ? 0
+                : trackWords.stream().filter(videoWords::contains).count() / (double) trackWords.size();
+        double artistScore = artists.stream()
+                .map(TrackMatcher::words)
+                .anyMatch(artistWords -> !artistWords.isEmpty() && videoAndChannelWords.containsAll(artistWords)) ? 1 : 0;
+
+        double penalty = 0;
+        for (String word : ALTERNATE_VERSION_WORDS) {
+            if (videoWords.contains(word) && !trackWords.contains(word)) {
+                penalty += ALTERNATE_VERSION_PENALTY;
+            }
+        }
+
+        double total = DURATION_WEIGHT * durationScore(durationMs, video.getDuration())
+                + TITLE_WEIGHT * titleScore
+                + ARTIST_WEIGHT * artistScore
+                - penalty;
+        return Math.max(0, Math.min(1, total));
+    }
+
+    private static double durationScore(long trackDurationMs, String videoDuration) {
+        if (videoDuration == null || trackDurationMs <= 0) {
+            return 0.5; // Inconnue : ni bonus ni exclusion
+        }
+        try {
+            long diffSeconds = Math.abs(Duration.parse(videoDuration).toMillis() - trackDurationMs) / 1000;
+            if (diffSeconds <= DURATION_TOLERANCE_SECONDS) {
+                return 1;
+            }
+            return Math.max(0, 1 - (diffSeconds - DURATION_TOLERANCE_SECONDS) / DURATION_FALLOFF_SECONDS);
+        } catch (DateTimeParseException e) {
+            return 0.5;
+        }
+    }
+
+    // "Beyoncé - Halo (Official Video)" -> {beyonce, halo, official, video}
+    static Set<String> words(String text) {
+        if (text == null) {
+            return Set.of();
+        }
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+        return plain.isEmpty() ? Set.of() : Arrays.stream(plain.split(" ")).collect(Collectors.toSet());
+    }
+}
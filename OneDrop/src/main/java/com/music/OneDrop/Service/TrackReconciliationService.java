@@ -0,0 +1,218 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Réconciliation au démarrage entre le dossier des pistes (~/OneDrop/tracks) et les entrées H2.
+ * Les dossiers sont vérifiés en parallèle (en-têtes WAV), puis les statuts incohérents
+ * sont corrigés entrée par entrée, relue juste avant l'écriture. Tourne en arrière-plan après le démarrage.
+ * Avec des workers (dossier partagé), seul le nœud API réconcilie, et les traitements en file ou sous bail sont ignorés.
+ */
+@Service
+public class TrackReconciliationService {
+
+    // Fichier dont la présence atteste une séparation réussie (même critère que le pipeline)
+    private static final String REQUIRED_STEM = "vocals.wav";
+
+    private record FolderState(String videoId, boolean valid, long lastModifiedMillis) {}
+
+    private final VideoRepository videoRepository;
+    private final TaskStatusManager statusManager;
+    private final LibrarySearchIndex searchIndex;
+    private final StorageQuotaManager storageQuotaManager;
+    private final NodeRole role;
+
+    public TrackReconciliationService(VideoRepository videoRepository, TaskStatusManager statusManager,
+                                      LibrarySearchIndex searchIndex, StorageQuotaManager storageQuotaManager,
+                                      @Value("${onedrop.role:standalone}") String role) {
+        this.videoRepository = videoRepository;
+        this.statusManager = statusManager;
+        this.searchIndex = searchIndex;
+        this.storageQuotaManager = storageQuotaManager;
+        this.role = NodeRole.fromName(role);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (role == NodeRole.WORKER) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        // --- 1. Inspection parallèle des dossiers de pistes ---
+        File[] folders = AudioProcessorService.PERMANENT_TRACKS_DIR.toFile().listFiles(File::isDirectory);
+        Map<String, FolderState> foldersById = folders == null ? Map.of() : Arrays.stream(folders)
+                .parallel()
+                .map(TrackReconciliationService::inspectFolder)
+                .collect(Collectors.toMap(FolderState::videoId, Function.identity()));
+
+        // --- 2. Comparaison avec la base ---
+        Map<String, VideoEntry> entriesById = videoRepository.findAll().stream()
+                .collect(Collectors.toMap(VideoEntry::getVideoId, Function.identity()));
+        List<VideoEntry> repaired = new ArrayList<>();
+        List<String> foldersToDelete = new ArrayList<>();
+
+        for (VideoEntry entry : entriesById.values()) {
+            if (isHandledByPipeline(entry)) {
+                continue;
+            }
+            if (reconcileEntry(entry, foldersById, foldersToDelete)) {
+                repaired.add(entry);
+            }
+        }
+
+        // Dossier valide sans entrée : on recrée l'entrée (titre inconnu, l'id en tient lieu)
+        List<VideoEntry> orphans = new ArrayList<>();
+        for (FolderState folder : foldersById.values()) {
+            if (entriesById.containsKey(folder.videoId())) {
+                continue;
+            }
+            if (folder.valid()) {
+                VideoEntry entry = new VideoEntry();
+                entry.setVideoId(folder.videoId());
+                entry.setVideoTitle(folder.videoId());
+                entry.setStatus(Status.COMPLETED.name());
+                entry.setProcessedAt(toDateTime(folder.lastModifiedMillis()));
+                orphans.add(entry);
+            } else if (!statusManager.hasActiveTask(folder.videoId())) {
+                foldersToDelete.add(folder.videoId());
+            }
+        }
+
+        // --- 3. Réparations ---
+        // L'inspection a pris du temps : un traitement a pu être lancé entre-temps, on revérifie juste avant d'agir
+        int removed = 0;
+        for (String videoId : foldersToDelete) {
+            if (statusManager.hasActiveTask(videoId)) {
+                continue;
+            }
+            try {
+                StorageQuotaManager.deleteRecursively(AudioProcessorService.PERMANENT_TRACKS_DIR.resolve(videoId));
+                storageQuotaManager.forget(videoId);
+                removed++;
+            } catch (IOException e) {
+                System.err.println("Reconciliation could not delete " + videoId + ": " + e.getMessage());
+            }
+        }
+        // Les entrées sont relues une à une : /process a pu changer leur statut depuis le findAll()
+        List<VideoEntry> saved = new ArrayList<>();
+        for (VideoEntry stale : repaired) {
+            videoRepository.findById(stale.getVideoId())
+                    .filter(current -> !isHandledByPipeline(current))
+                    .filter(current -> reconcileEntry(current, foldersById, new ArrayList<>()))
+                    .ifPresent(current -> saved.add(videoRepository.save(current)));
+        }
+        int adopted = 0;
+        for (VideoEntry orphan : orphans) {
+            // Entrée créée entre-temps (nouveau traitement) : elle fait foi
+            if (statusManager.hasActiveTask(orphan.getVideoId()) || videoRepository.existsById(orphan.getVideoId())) {
+                continue;
+            }
+            saved.add(videoRepository.save(orphan));
+            adopted++;
+        }
+        saved.forEach(searchIndex::put);
+
+        System.out.println("Tracks reconciliation finished in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                + foldersById.size() + " folders, " + entriesById.size() + " entries, "
+                + saved.size() + " entries repaired (" + adopted + " orphan folders adopted), "
+                + removed + " invalid folders removed");
+    }
+
+    // Une tâche relancée depuis le démarrage, ou confiée aux workers, est gérée par le pipeline : ne pas y toucher
+    private boolean isHandledByPipeline(VideoEntry entry) {
+        return statusManager.hasActiveTask(entry.getVideoId())
+                || (role.dispatchesToWorkers() && SeparationJobQueue.isActive(entry));
+    }
+
+    /**
+     * Aligne le statut d'une entrée sur l'état réel de son dossier.
+     * @return true si l'entrée a été modifiée.
+     */
+    private boolean reconcileEntry(VideoEntry entry, Map<String, FolderState> foldersById, List<String> foldersToDelete) {
+        String status = entry.getStatus();
+        FolderState ownFolder = foldersById.get(entry.getVideoId());
+        boolean ownStemsValid = ownFolder != null && ownFolder.valid();
+
+        // Doublon lié aux pistes d'une autre vidéo : valide seulement si ce dossier-là l'est
+        if (entry.getStemsVideoId() != null) {
+            FolderState ownerFolder = foldersById.get(entry.getStemsVideoId());
+            if (ownerFolder != null && ownerFolder.valid()) {
+                return false;
+            }
+            entry.setStemsVideoId(null);
+            entry.setStatus(ownStemsValid ? Status.COMPLETED.name() : Status.EVICTED.name());
+            return true;
+        }
+
+        if (ownStemsValid) {
+            // Pistes complètes sur disque : l'entrée est terminée, quel que soit son ancien statut
+            if (Status.COMPLETED.name().equals(status)) {
+                return false;
+            }
+            entry.setStatus(Status.COMPLETED.name());
+            if (entry.getProcessedAt() == null) {
+                entry.setProcessedAt(toDateTime(ownFolder.lastModifiedMillis()));
+            }
+            return true;
+        }
+
+        // Dossier partiel ou corrompu : le supprimer pour que le prochain traitement ne bute pas dessus
+        if (ownFolder != null) {
+            foldersToDelete.add(entry.getVideoId());
+        }
+        if (Status.COMPLETED.name().equals(status)) {
+            // Pistes perdues : re-séparation à la demande, comme après une éviction
+            entry.setStatus(Status.EVICTED.name());
+            return true;
+        }
+        if (Status.PENDING.name().equals(status) || Status.DOWNLOADING.name().equals(status)
+                || Status.SEPARATING.name().equals(status)) {
+            // Tâche interrompue par l'arrêt de l'application
+            entry.setStatus(Status.FAILED.name());
+            entry.setProcessedAt(null);
+            return true;
+        }
+        return false;
+    }
+
+    private static FolderState inspectFolder(File folder) {
+        File[] wavFiles = folder.listFiles((dir, name) -> name.endsWith(".wav"));
+        boolean valid = wavFiles != null
+                && Arrays.stream(wavFiles).anyMatch(f -> f.getName().equals(REQUIRED_STEM))
+                && Arrays.stream(wavFiles).allMatch(TrackReconciliationService::isValidWav);
+        return new FolderState(folder.getName(), valid, folder.lastModified());
+    }
+
+    private static boolean isValidWav(File wavFile) {
+        try {
+            return WavHeader.read(wavFile.toPath()).getFrameCount() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
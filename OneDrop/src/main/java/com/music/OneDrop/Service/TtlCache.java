@@ -0,0 +1,152 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache mémoire borné (LRU) avec durée de vie par entrée et regroupement des appels concurrents :
+ * si plusieurs requêtes manquent la même clé en même temps, un seul chargement est lancé
+ * et tous les appelants reçoivent son résultat (single-flight).
+ * Les entrées expirées restent lisibles via {@link #getStale} jusqu'à leur éviction.
+ */
+public class TtlCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtlCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // Ordre d'accès : l'entrée la moins récemment lue est la première évincée
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retourne la valeur en cache si elle n'a pas expiré, sinon la charge (une seule fois
+     * pour tous les appelants concurrents de la même clé).
+     */
+    public V get(K key, Loader<V> loader) throws IOException {
+        return get(key, loader, value -> true);
+    }
+
+    /**
+     * Idem ; une valeur chargée pour laquelle 'cacheable' est faux (résultat partiel) est transmise
+     * aux appelants en attente mais n'est pas conservée.
+     */
+    public V get(K key, Loader<V> loader, Predicate<V> cacheable) throws IOException {
+        V cached = getFresh(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        // Enregistrement atomique : un seul appelant crée le chargement de la clé, les autres l'attendent
+        CompletableFuture<V> ownFuture = new CompletableFuture<>();
+        CompletableFuture<V> future = inFlight.computeIfAbsent(key, k -> ownFuture);
+        if (future != ownFuture) {
+            coalesced.incrementAndGet();
+            return await(future);
+        }
+
+        try {
+            // Un chargement a pu se terminer entre la lecture ci-dessus et l'enregistrement
+            V loaded = getFresh(key);
+            if (loaded != null) {
+                hits.incrementAndGet();
+                ownFuture.complete(loaded);
+                return loaded;
+            }
+            misses.incrementAndGet();
+            V value = loader.load();
+            if (cacheable.test(value)) {
+                put(key, value);
+            }
+            ownFuture.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            ownFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ownFuture);
+        }
+    }
+
+    public V getFresh(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry != null && entry.expiresAtNanos() - System.nanoTime() > 0 ? entry.value() : null;
+        }
+    }
+
+    /**
+     * Retourne la valeur même expirée (mode dégradé), ou null si elle a été évincée.
+     */
+    public V getStale(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry != null ? entry.value() : null;
+        }
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getCoalesced() { return coalesced.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.music.OneDrop.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mode threads virtuels (spring.threads.virtual.enabled, Java 21) : détection de l'épinglage.
+ * Un thread virtuel qui bloque dans un bloc synchronized ou un appel natif immobilise son thread porteur ;
+ * l'événement JFR jdk.VirtualThreadPinned est écouté en continu et regroupé par site d'appel
+ * (première frame de l'application dans la pile), journalisé à la première occurrence de chaque site.
+ * Expose aussi les compteurs de threads et de mémoire, pour comparer les deux modes sous charge.
+ */
+@Service
+public class VirtualThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.music.OneDrop.";
+    private static final int MAX_SITES = 200;
+
+    private static final class PinningSite {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final String stack;
+
+        PinningSite(String stack) {
+            this.stack = stack;
+        }
+    }
+
+    private final boolean requested;
+    private final boolean active;
+    private final Duration threshold;
+    private final Map<String, PinningSite> sites = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private RecordingStream stream;
+
+    public VirtualThreadMonitor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                @Value("${onedrop.virtual-threads.pinning-threshold-ms:20}") long thresholdMs) {
+        this.requested = virtualThreads;
+        // Sur Java 17, Spring Boot ignore la propriété : l'application reste en threads classiques
+        this.active = virtualThreads && Runtime.version().feature() >= 21;
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    void start() {
+        if (requested && !active) {
+            System.err.println("spring.threads.virtual.enabled is set but Java " + Runtime.version().feature()
+                    + " has no virtual threads (build and run with Java 21: mvn -Pjava21)");
+        }
+        if (!active) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        System.out.println("Virtual threads enabled; reporting pinned threads blocked longer than " + threshold.toMillis() + " ms");
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedEvents.increment();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+        String site = frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(VirtualThreadMonitor::describe)
+                .filter(frame -> frame.startsWith(APP_PACKAGE))
+                .findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : describe(frames.get(0)));
+        if (!sites.containsKey(site) && sites.size() >= MAX_SITES) {
+            site = "other";
+        }
+
+        long nanos = event.getDuration().toNanos();
+        PinningSite stats = sites.computeIfAbsent(site, key -> {
+            StringBuilder stack = new StringBuilder();
+            frames.stream().limit(12).forEach(frame -> stack.append("\n    at ").append(describe(frame)));
+            System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + key + stack);
+            return new PinningSite(stack.toString());
+        });
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    public Map<String, Object> getStats() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreadsRequested", requested);
+        stats.put("virtualThreadsActive", active);
+        stats.put("javaVersion", Runtime.version().feature());
+        // Threads de plate-forme uniquement : les threads virtuels n'y figurent pas
+        stats.put("platformThreads", threads.getThreadCount());
+        stats.put("peakPlatformThreads", threads.getPeakThreadCount());
+        stats.put("heapUsedMb", memory.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+        stats.put("nonHeapUsedMb", memory.getNonHeapMemoryUsage().getUsed() / (1024 * 1024));
+        stats.put("pinningThresholdMs", threshold.toMillis());
+        stats.put("pinnedEvents", pinnedEvents.sum());
+
+        Map<String, Object> bySite = new LinkedHashMap<>();
+        sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, PinningSite> entry) -> entry.getValue().totalNanos.sum()).reversed())
+                .forEach(entry -> {
+                    PinningSite site = entry.getValue();
+                    Map<String, Object> siteStats = new LinkedHashMap<>();
+                    siteStats.put("count", site.count.sum());
+                    siteStats.put("totalMs", site.totalNanos.sum() / 1_000_000);
+                    siteStats.put("maxMs", site.maxNanos.get() / 1_000_000);
+                    siteStats.put("stack", site.stack.strip());
+                    bySite.put(entry.getKey(), siteStats);
+                });
+        stats.put("pinnedSites", bySite);
+        return stats;
+    }
+}
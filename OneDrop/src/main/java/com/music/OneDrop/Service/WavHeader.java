@@ -0,0 +1,195 @@
+package com.music.OneDrop.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * En-tête d'un fichier WAV (RIFF) : format PCM et position du bloc "data".
+ * Seuls les chunks "fmt " et "data" sont interprétés, les autres (LIST, etc.) sont ignorés.
+ */
+public final class WavHeader {
+
+    public static final int FORMAT_PCM = 1;
+    public static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    public static final int CANONICAL_HEADER_SIZE = 44;
+
+    private final int audioFormat;
+    private final int channels;
+    private final int sampleRate;
+    private final int bitsPerSample;
+    private final long dataOffset;
+    private final long dataLength;
+
+    public WavHeader(int audioFormat, int channels, int sampleRate, int bitsPerSample, long dataOffset, long dataLength) {
+        this.audioFormat = audioFormat;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Lit et valide l'en-tête d'un fichier WAV.
+     * @throws IOException si le fichier n'est pas un WAV PCM/float lisible.
+     */
+    public static WavHeader read(Path wavFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(wavFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer riff = readFully(channel, 0, 12);
+            if (!"RIFF".equals(fourCC(riff, 0)) || !"WAVE".equals(fourCC(riff, 8))) {
+                throw new IOException("Not a RIFF/WAVE file: " + wavFile);
+            }
+
+            int audioFormat = -1, channels = 0, sampleRate = 0, bitsPerSample = 0;
+            long position = 12;
+            while (position + 8 <= fileSize) {
+                ByteBuffer chunkHeader = readFully(channel, position, 8);
+                String chunkId = fourCC(chunkHeader, 0);
+                long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(4));
+                long chunkStart = position + 8;
+
+                if ("fmt ".equals(chunkId)) {
+                    ByteBuffer fmt = readFully(channel, chunkStart, (int) Math.min(chunkSize, 40));
+                    audioFormat = fmt.getShort(0) & 0xFFFF;
+                    channels = fmt.getShort(2) & 0xFFFF;
+                    sampleRate = fmt.getInt(4);
+                    bitsPerSample = fmt.getShort(14) & 0xFFFF;
+                    if (audioFormat == FORMAT_EXTENSIBLE && chunkSize >= 26) {
+                        // Le sous-format (GUID) commence par le code de format réel
+                        audioFormat = fmt.getShort(24) & 0xFFFF;
+                    }
+                } else if ("data".equals(chunkId)) {
+                    if (audioFormat != FORMAT_PCM && audioFormat != FORMAT_IEEE_FLOAT) {
+                        throw new IOException("Unsupported WAV format " + audioFormat + ": " + wavFile);
+                    }
+                    if (channels <= 0 || sampleRate <= 0 || bitsPerSample % 8 != 0 || bitsPerSample == 0) {
+                        throw new IOException("Invalid WAV fmt chunk: " + wavFile);
+                    }
+                    // Taille absente ou fausse (écriture interrompue, flux) : on borne à la fin du fichier
+                    long dataLength = Math.min(chunkSize, fileSize - chunkStart);
+                    return new WavHeader(audioFormat, channels, sampleRate, bitsPerSample, chunkStart, dataLength);
+                }
+                // Les chunks sont alignés sur 2 octets
+                position = chunkStart + chunkSize + (chunkSize & 1);
+            }
+            throw new IOException("No data chunk found: " + wavFile);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of WAV header");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String fourCC(ByteBuffer buffer, int offset) {
+        byte[] id = new byte[4];
+        buffer.get(offset, id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * En-tête canonique de 44 octets (RIFF, "fmt " de 16 octets, "data") décrivant ce format et cette taille de données.
+     */
+    public ByteBuffer toCanonicalHeader() {
+        ByteBuffer header = ByteBuffer.allocate(CANONICAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) (CANONICAL_HEADER_SIZE - 8 + dataLength));
+        header.put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(16);
+        header.putShort((short) audioFormat);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * getBlockAlign());
+        header.putShort((short) getBlockAlign());
+        header.putShort((short) bitsPerSample);
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) dataLength);
+        return header.flip();
+    }
+
+    public int getAudioFormat() { return audioFormat; }
+    public int getChannels() { return channels; }
+    public int getSampleRate() { return sampleRate; }
+    public int getBitsPerSample() { return bitsPerSample; }
+    public long getDataOffset() { return dataOffset; }
+    public long getDataLength() { return dataLength; }
+
+    public int getBytesPerSample() { return bitsPerSample / 8; }
+    public int getBlockAlign() { return channels * getBytesPerSample(); }
+    public long getFrameCount() { return dataLength / getBlockAlign(); }
+
+    public double getDurationSeconds() {
+        return (double) getFrameCount() / sampleRate;
+    }
+
+    /**
+     * Lit un échantillon à la position courante du tampon (little-endian) et le normalise dans [-1, 1].
+     */
+    public double readSample(ByteBuffer buffer) {
+        if (audioFormat == FORMAT_IEEE_FLOAT) {
+            return bitsPerSample == 64 ? buffer.getDouble() : buffer.getFloat();
+        }
+        switch (bitsPerSample) {
+            case 8:
+                return ((buffer.get() & 0xFF) - 128) / 128.0;
+            case 16:
+                return buffer.getShort() / 32768.0;
+            case 24:
+                int low = buffer.get() & 0xFF;
+                int mid = buffer.get() & 0xFF;
+                int high = buffer.get(); // octet signé : étend le signe
+                return ((high << 16) | (mid << 8) | low) / 8388608.0;
+            case 32:
+                return buffer.getInt() / 2147483648.0;
+            default:
+                throw new IllegalStateException("Unsupported PCM sample size: " + bitsPerSample);
+        }
+    }
+
+    /**
+     * Écrit un échantillon normalisé à la position courante du tampon (inverse de readSample).
+     * Les valeurs hors de [-1, 1] sont écrêtées pour les formats entiers.
+     */
+    public void writeSample(ByteBuffer buffer, double sample) {
+        if (audioFormat == FORMAT_IEEE_FLOAT) {
+            if (bitsPerSample == 64) {
+                buffer.putDouble(sample);
+            } else {
+                buffer.putFloat((float) sample);
+            }
+            return;
+        }
+        double clipped = Math.max(-1.0, Math.min(1.0, sample));
+        switch (bitsPerSample) {
+            case 8:
+                buffer.put((byte) (Math.min(127, Math.round(clipped * 128)) + 128));
+                break;
+            case 16:
+                buffer.putShort((short) Math.min(Short.MAX_VALUE, Math.round(clipped * 32768.0)));
+                break;
+            case 24:
+                int value = (int) Math.min(8388607, Math.round(clipped * 8388608.0));
+                buffer.put((byte) value);
+                buffer.put((byte) (value >> 8));
+                buffer.put((byte) (value >> 16));
+                break;
+            case 32:
+                buffer.putInt((int) Math.min(Integer.MAX_VALUE, Math.round(clipped * 2147483648.0)));
+                break;
+            default:
+                throw new IllegalStateException("Unsupported PCM sample size: " + bitsPerSample);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limiteur pondéré par le coût des appels à l'API YouTube Data (search.list = 100 unités,
+ * videos.list = 1). Deux bornes s'appliquent :
+ * - le budget journalier, remis à zéro à minuit (heure du Pacifique, comme chez Google) ;
+ * - un seau à jetons (capacité + remplissage par minute) qui empêche une rafale de vider la journée.
+ * Les appels d'arrière-plan (préchargement) laissent une réserve aux requêtes des utilisateurs.
+ */
+@Component
+public class YoutubeQuotaLimiter {
+
+    public enum Priority {
+        FOREGROUND, // Requête d'un utilisateur
+        BACKGROUND  // Préchargement : abandonné en premier
+    }
+
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");
+
+    private final long dailyBudget;
+    private final double burstCapacity;
+    private final double refillPerNano;
+    private final double backgroundReserveRatio;
+
+    private LocalDate quotaDay;
+    private long usedToday;
+    private double tokens;
+    private long lastRefillNanos;
+
+    private long rejectedCalls;
+    private long rejectedUnits;
+    private long degradedServes;
+
+    public YoutubeQuotaLimiter(@Value("${youtube.quota.daily-budget:10000}") long dailyBudget,
+                               @Value("${youtube.quota.burst-capacity:1500}") long burstCapacity,
+                               @Value("${youtube.quota.refill-per-minute:20}") double refillPerMinute,
+                               @Value("${youtube.quota.background-reserve-ratio:0.3}") double backgroundReserveRatio) {
+        this.dailyBudget = dailyBudget;
+        this.burstCapacity = burstCapacity;
+        this.refillPerNano = refillPerMinute / Duration.ofMinutes(1).toNanos();
+        this.backgroundReserveRatio = backgroundReserveRatio;
+        this.quotaDay = LocalDate.now(QUOTA_ZONE);
+        this.tokens = burstCapacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Réserve 'cost' unités ou lève QuotaExceededException sans rien consommer.
+     */
+    public synchronized void acquire(int cost, Priority priority) throws QuotaExceededException {
+        refresh();
+        long remainingToday = dailyBudget - usedToday;
+        // Arrière-plan : garder une part du budget et du seau pour les utilisateurs
+        double reserveToday = priority == Priority.BACKGROUND ? dailyBudget * backgroundReserveRatio : 0;
+        double reserveTokens = priority == Priority.BACKGROUND ? burstCapacity * backgroundReserveRatio : 0;
+
+        if (remainingToday - cost < reserveToday) {
+            reject(cost);
+            throw new QuotaExceededException("YouTube daily quota exhausted (" + remainingToday + " units left)", secondsUntilReset());
+        }
+        if (tokens - cost < reserveTokens) {
+            reject(cost);
+            long waitSeconds = (long) Math.ceil((cost + reserveTokens - tokens) / refillPerNano / 1_000_000_000L);
+            throw new QuotaExceededException("YouTube quota burst limit reached", Math.max(1, waitSeconds));
+        }
+        tokens -= cost;
+        usedToday += cost;
+    }
+
+    /**
+     * Vérifie, sans consommer, qu'un appel d'arrière-plan de ce coût serait accepté.
+     */
+    public boolean allowsBackground(int cost) {
+        return allows(cost, Priority.BACKGROUND);
+    }
+
+    /**
+     * Vérifie, sans consommer, qu'un appel de ce coût serait accepté à cette priorité.
+     */
+    public synchronized boolean allows(int cost, Priority priority) {
+        refresh();
+        double reserveRatio = priority == Priority.BACKGROUND ? backgroundReserveRatio : 0;
+        return dailyBudget - usedToday - cost >= dailyBudget * reserveRatio
+                && tokens - cost >= burstCapacity * reserveRatio;
+    }
+
+    /**
+     * YouTube a répondu "quotaExceeded" : le budget réel est épuisé jusqu'à minuit (Pacifique).
+     */
+    public synchronized void markExhausted() {
+        refresh();
+        usedToday = Math.max(usedToday, dailyBudget);
+    }
+
+    public synchronized void recordDegradedServe() {
+        degradedServes++;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        refresh();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dailyBudget", dailyBudget);
+        stats.put("usedToday", usedToday);
+        stats.put("remainingToday", Math.max(0, dailyBudget - usedToday));
+        stats.put("burstTokens", Math.floor(tokens));
+        stats.put("burstCapacity", burstCapacity);
+        stats.put("secondsUntilReset", secondsUntilReset());
+        stats.put("rejectedCalls", rejectedCalls);
+        stats.put("rejectedUnits", rejectedUnits);
+        stats.put("degradedServes", degradedServes);
+        return stats;
+    }
+
+    private void reject(int cost) {
+        rejectedCalls++;
+        rejectedUnits += cost;
+    }
+
+    // Remplit le seau selon le temps écoulé et remet le budget à zéro au changement de jour
+    private void refresh() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstCapacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        if (!today.equals(quotaDay)) {
+            quotaDay = today;
+            usedToday = 0;
+        }
+    }
+
+    public long secondsUntilReset() {
+        ZonedDateTime now = ZonedDateTime.now(QUOTA_ZONE);
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(QUOTA_ZONE);
+        return Math.max(1, Duration.between(now, midnight).getSeconds());
+    }
+}
@@ -1,32 +1,255 @@
 package com.music.OneDrop.Service;
 
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
 import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.SearchListResponse;
 import com.google.api.services.youtube.model.SearchResult;
 import com.google.api.services.youtube.model.Video;
 import com.google.api.services.youtube.model.VideoListResponse;
+import com.music.OneDrop.Dto.BatchSearchResultDto;
 import com.music.OneDrop.Dto.VideoDto;
+import com.music.OneDrop.Dto.VideoPageDto;
+import com.music.OneDrop.Service.YoutubeQuotaLimiter.Priority;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 public class YoutubeService {
 
+    // Coût en unités de quota de l'API YouTube Data v3 (quota journalier par défaut: 10 000)
+    static final int SEARCH_LIST_COST = 100;
+    static final int VIDEOS_LIST_COST = 1;
+    private static final int MAX_IDS_PER_VIDEOS_LIST = 50;
+    private static final Set<String> QUOTA_ERROR_REASONS = Set.of("quotaExceeded", "dailyLimitExceeded");
+
     private final YouTube youTube;
+    private final YoutubeQuotaLimiter quotaLimiter;
+
+    // Cache des pages de résultats : clé = requête normalisée + curseur de page + nombre de résultats
+    private final TtlCache<String, VideoPageDto> searchCache;
+
+    // Cache des détails par videoId : videos.list n'est appelé que pour les IDs jamais vus (ou expirés)
+    private final TtlCache<String, VideoDto> detailsCache;
+    private final AtomicLong detailsFromCache = new AtomicLong();
+    private final AtomicLong detailsFetched = new AtomicLong();
+
+    // Préchargement de la page suivante : un seul thread, file courte ; si elle est pleine, on renonce
+    private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+            runnable -> {
+                Thread thread = new Thread(runnable, "youtube-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+    private final AtomicLong prefetchedPages = new AtomicLong();
+    private final AtomicLong prefetchSkipped = new AtomicLong();
+    private final boolean prefetchEnabled;
+
+    // Recherches groupées : parallélisme borné (au plus la taille du pool de connexions HTTP)
+    private final ThreadPoolExecutor batchExecutor;
+    private final AtomicLong batchQueries = new AtomicLong();
 
     @Value("${youtube.api.key}")
     private String apiKey;
 
-    public YoutubeService(YouTube youTube) {
+    public YoutubeService(YouTube youTube, YoutubeQuotaLimiter quotaLimiter,
+                          @Value("${youtube.search.cache.max-entries:2000}") int searchCacheMaxEntries,
+                          @Value("${youtube.search.cache.ttl-minutes:360}") long searchCacheTtlMinutes,
+                          @Value("${youtube.details.cache.max-entries:20000}") int detailsCacheMaxEntries,
+                          @Value("${youtube.details.cache.ttl-hours:24}") long detailsCacheTtlHours,
+                          @Value("${youtube.search.prefetch.enabled:true}") boolean prefetchEnabled,
+                          @Value("${youtube.search.batch.parallelism:8}") int batchParallelism) {
         this.youTube = youTube;
+        this.quotaLimiter = quotaLimiter;
+        this.searchCache = new TtlCache<>(searchCacheMaxEntries, Duration.ofMinutes(searchCacheTtlMinutes));
+        this.detailsCache = new TtlCache<>(detailsCacheMaxEntries, Duration.ofHours(detailsCacheTtlHours));
+        this.prefetchEnabled = prefetchEnabled;
+        this.batchExecutor = new ThreadPoolExecutor(
+                batchParallelism, batchParallelism, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "youtube-batch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.batchExecutor.allowCoreThreadTimeOut(true);
     }
 
+    @PreDestroy
+    void shutdownPrefetch() {
+        prefetchExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * Recherche avec cache : les requêtes identiques (après normalisation) sont servies depuis la mémoire,
+     * et les requêtes concurrentes identiques partagent un seul appel à l'API.
+     */
     public List<VideoDto> searchVideosWithDetails(String query, long maxResults) throws IOException {
+        return searchPage(query, null, maxResults).getItems();
+    }
+
+    /**
+     * Une page de résultats (pageToken null = première page). Une fois la page servie,
+     * la suivante est chargée en arrière-plan dans le cache pour que le défilement soit instantané.
+     */
+    public VideoPageDto searchPage(String query, String pageToken, long maxResults) throws IOException {
+        VideoPageDto page = pageOrStale(query, pageToken, maxResults);
+        prefetchNextPage(query, page, maxResults);
+        return page;
+    }
+
+    /**
+     * Lance plusieurs recherches (première page uniquement, sans préchargement) en parallèle
+     * et renvoie leurs résultats dans l'ordre des requêtes. Une requête en échec n'interrompt pas les autres ;
+     * les doublons du lot partagent le même appel grâce au cache.
+     */
+    public List<BatchSearchResultDto> searchBatch(List<String> queries, long maxResults) {
+        return searchBatch(queries, maxResults, Priority.FOREGROUND);
+    }
+
+    /**
+     * Idem à une priorité donnée. BACKGROUND (travaux de fond, ex: import d'album) laisse intacte la réserve
+     * de quota des recherches interactives et n'a pas de mode dégradé : quota épuisé = "quota_exceeded".
+     */
+    public List<BatchSearchResultDto> searchBatch(List<String> queries, long maxResults, Priority priority) {
+        batchQueries.addAndGet(queries.size());
+        List<CompletableFuture<BatchSearchResultDto>> futures = queries.stream()
+                .map(query -> CompletableFuture.supplyAsync(() -> searchOne(query, maxResults, priority), batchExecutor))
+                .collect(Collectors.toList());
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private BatchSearchResultDto searchOne(String query, long maxResults, Priority priority) {
+        try {
+            VideoPageDto page = priority == Priority.BACKGROUND
+                    ? cachedPage(query, null, maxResults, priority)
+                    : pageOrStale(query, null, maxResults);
+            BatchSearchResultDto result = new BatchSearchResultDto(query, page.getItems(), null);
+            // Page partagée avec un appel interactif concurrent, chargée en mode dégradé
+            result.setDegraded(page.isDegraded());
+            return result;
+        } catch (QuotaExceededException e) {
+            BatchSearchResultDto result = new BatchSearchResultDto(query, List.of(), "quota_exceeded");
+            result.setRetryAfterSeconds(e.getRetryAfterSeconds());
+            return result;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Batch search failed for '" + query + "': " + e.getMessage());
+            return new BatchSearchResultDto(query, List.of(), "error");
+        }
+    }
+
+    private VideoPageDto pageOrStale(String query, String pageToken, long maxResults) throws IOException {
+        try {
+            return cachedPage(query, pageToken, maxResults, Priority.FOREGROUND);
+        } catch (QuotaExceededException e) {
+            // Mode dégradé : une page expirée vaut mieux qu'une erreur
+            VideoPageDto stale = searchCache.getStale(searchCacheKey(query, pageToken, maxResults));
+            if (stale == null) {
+                throw e;
+            }
+            quotaLimiter.recordDegradedServe();
+            return stale;
+        }
+    }
+
+    private VideoPageDto cachedPage(String query, String pageToken, long maxResults, Priority priority) throws IOException {
+        String key = searchCacheKey(query, pageToken, maxResults);
+        // Une page dégradée (quota épuisé en cours de route) n'est pas gardée : elle serait servie comme fraîche
+        TtlCache.Loader<VideoPageDto> loader = () -> fetchVideosWithDetails(query, pageToken, maxResults, priority);
+        try {
+            return searchCache.get(key, loader, page -> !page.isDegraded());
+        } catch (QuotaExceededException e) {
+            // Les appels concurrents partagent le chargement quelle que soit leur priorité : une recherche
+            // interactive a pu rejoindre un chargement de fond (préchargement, import d'album) refusé pour
+            // la seule réserve. Si le budget interactif le permet, un nouvel essai à sa propre priorité.
+            if (priority != Priority.FOREGROUND || !quotaLimiter.allows(SEARCH_LIST_COST + VIDEOS_LIST_COST, priority)) {
+                throw e;
+            }
+            return searchCache.get(key, loader, page -> !page.isDegraded());
+        }
+    }
+
+    private static String searchCacheKey(String query, String pageToken, long maxResults) {
+        return normalizeQuery(query) + "|" + (pageToken == null ? "" : pageToken) + "|" + maxResults;
+    }
+
+    private void prefetchNextPage(String query, VideoPageDto page, long maxResults) {
+        String nextPageToken = page.getNextPageToken();
+        if (!prefetchEnabled || nextPageToken == null) {
+            return;
+        }
+        // Quota bas : le préchargement est le premier sacrifié
+        if (!quotaLimiter.allowsBackground(SEARCH_LIST_COST + VIDEOS_LIST_COST)) {
+            prefetchSkipped.incrementAndGet();
+            return;
+        }
+        prefetchExecutor.execute(() -> {
+            try {
+                // Passe par le cache : déjà présente = aucun appel ; demandée entre-temps = appel partagé
+                cachedPage(query, nextPageToken, maxResults, Priority.BACKGROUND);
+                prefetchedPages.incrementAndGet();
+            } catch (QuotaExceededException e) {
+                prefetchSkipped.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("YouTube prefetch failed for '" + query + "': " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Statistiques du cache de recherche (succès, échecs, appels regroupés, quota économisé).
+     */
+    public Map<String, Object> getSearchCacheStats() {
+        long hits = searchCache.getHits();
+        long coalesced = searchCache.getCoalesced();
+        long misses = searchCache.getMisses();
+        long served = hits + coalesced + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", searchCache.size());
+        stats.put("hits", hits);
+        stats.put("coalesced", coalesced);
+        stats.put("misses", misses);
+        stats.put("evictions", searchCache.getEvictions());
+        stats.put("hitRatio", served == 0 ? 0.0 : (double) (hits + coalesced) / served);
+        stats.put("quotaUnitsSaved", (hits + coalesced) * (SEARCH_LIST_COST + VIDEOS_LIST_COST));
+        stats.put("detailsEntries", detailsCache.size());
+        stats.put("detailsFromCache", detailsFromCache.get());
+        stats.put("detailsFetched", detailsFetched.get());
+        stats.put("prefetchEnabled", prefetchEnabled);
+        stats.put("prefetchedPages", prefetchedPages.get());
+        stats.put("prefetchSkipped", prefetchSkipped.get());
+        stats.put("batchQueries", batchQueries.get());
+        stats.put("quota", quotaLimiter.getStats());
+        return stats;
+    }
+
+    // "  Daft  PUNK " et "daft punk" partagent la même entrée de cache
+    static String normalizeQuery(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private VideoPageDto fetchVideosWithDetails(String query, String pageToken, long maxResults, Priority priority) throws IOException {
         
         // --- 1. PREMIER APPEL : Récupérer les IDs des vidéos (search.list) ---
         
@@ -35,41 +258,138 @@ public class YoutubeService {
         search.setQ(query);
         search.setType("video");
         // Nous demandons seulement l'ID. Nous allons récupérer les autres détails dans le 2e appel.
-        search.setFields("items/id/videoId");
+        search.setFields("nextPageToken,items/id/videoId");
         search.setMaxResults(maxResults);
+        if (pageToken != null) {
+            search.setPageToken(pageToken);
+        }
 
-        SearchListResponse searchResponse = search.execute();
+        SearchListResponse searchResponse = execute(search, SEARCH_LIST_COST, priority);
         List<SearchResult> searchResults = searchResponse.getItems();
 
         // Si aucun résultat, retourner une liste vide
-        if (searchResults.isEmpty()) {
-            return new ArrayList<>();
+        if (searchResults == null || searchResults.isEmpty()) {
+            return new VideoPageDto(List.of(), null);
         }
 
-        // Collecter tous les IDs des vidéos dans une seule chaîne séparée par des virgules
-        String videoIds = searchResults.stream()
+        List<String> rankedIds = searchResults.stream()
                 .map(result -> result.getId().getVideoId())
-                .collect(Collectors.joining(","));
+                .collect(Collectors.toList());
 
-        // --- 2. DEUXIÈME APPEL : Récupérer les détails (videos.list) ---
-        
-        YouTube.Videos.List videoListRequest = youTube.videos().list("snippet,contentDetails");
-        videoListRequest.setKey(apiKey);
-        videoListRequest.setId(videoIds); 
-        // Demander les champs 'snippet' (titre, chaîne, date, miniatures) et 'contentDetails' (durée)
-        videoListRequest.setFields("items(id,snippet(title,channelTitle,publishedAt,thumbnails/default/url),contentDetails/duration)");
-        
-        VideoListResponse videoListResponse = videoListRequest.execute();
-        
-        // --- 3. MAPPING : Convertir les objets Video en DTO ---
+        // --- 2. DEUXIÈME APPEL (seulement pour les IDs absents du cache) ---
+        Details details = getVideoDetails(rankedIds, priority);
+        VideoPageDto page = new VideoPageDto(List.copyOf(details.videos()), searchResponse.getNextPageToken());
+        page.setDegraded(details.degraded());
+        return page;
+    }
 
-        return videoListResponse.getItems().stream()
-                .map(this::mapToVideoDto)
-                .collect(Collectors.toList());
+    /**
+     * Détails d'une vidéo (titre, durée...), depuis le cache ou via videos.list.
+     * @return Vide si la vidéo n'existe pas (ou plus) sur YouTube.
+     */
+    public Optional<VideoDto> getVideoDetails(String videoId) throws IOException {
+        return getVideoDetails(List.of(videoId)).stream().findFirst();
+    }
+
+    /**
+     * Détails de plusieurs vidéos dans l'ordre demandé. Un seul appel videos.list est fait,
+     * pour les IDs absents du cache ; les vidéos introuvables sont omises.
+     */
+    public List<VideoDto> getVideoDetails(List<String> videoIds) throws IOException {
+        return getVideoDetails(videoIds, Priority.FOREGROUND).videos();
+    }
+
+    // degraded : quota épuisé en cours de route, certaines vidéos sont expirées ou omises
+    private record Details(List<VideoDto> videos, boolean degraded) {}
+
+    private Details getVideoDetails(List<String> videoIds, Priority priority) throws IOException {
+        boolean degraded = false;
+        Map<String, VideoDto> found = new LinkedHashMap<>();
+        List<String> missingIds = new ArrayList<>();
+        for (String videoId : videoIds) {
+            VideoDto cached = detailsCache.getFresh(videoId);
+            if (cached != null) {
+                found.put(videoId, cached);
+            } else if (!missingIds.contains(videoId)) {
+                missingIds.add(videoId);
+            }
+        }
+        detailsFromCache.addAndGet(videoIds.size() - missingIds.size());
+
+        // videos.list accepte au plus 50 IDs par appel
+        for (int from = 0; from < missingIds.size(); from += MAX_IDS_PER_VIDEOS_LIST) {
+            List<String> chunk = missingIds.subList(from, Math.min(from + MAX_IDS_PER_VIDEOS_LIST, missingIds.size()));
+            YouTube.Videos.List videoListRequest = youTube.videos().list("snippet,contentDetails");
+            videoListRequest.setKey(apiKey);
+            // Collecter les IDs manquants dans une seule chaîne séparée par des virgules
+            videoListRequest.setId(String.join(",", chunk));
+            // Demander les champs 'snippet' (titre, chaîne, date, miniatures) et 'contentDetails' (durée)
+            videoListRequest.setFields("items(id,snippet(title,channelTitle,publishedAt,thumbnails/default/url),contentDetails/duration)");
+
+            VideoListResponse videoListResponse;
+            try {
+                videoListResponse = execute(videoListRequest, VIDEOS_LIST_COST, priority);
+            } catch (QuotaExceededException e) {
+                // Mode dégradé : détails expirés si on les a encore, sinon la vidéo est omise
+                if (priority == Priority.BACKGROUND) {
+                    throw e;
+                }
+                for (String videoId : missingIds.subList(from, missingIds.size())) {
+                    VideoDto stale = detailsCache.getStale(videoId);
+                    if (stale != null) {
+                        found.put(videoId, stale);
+                    }
+                }
+                quotaLimiter.recordDegradedServe();
+                degraded = true;
+                break;
+            }
+            detailsFetched.addAndGet(chunk.size());
+
+            // --- 3. MAPPING : Convertir les objets Video en DTO ---
+            for (Video video : videoListResponse.getItems()) {
+                VideoDto dto = mapToVideoDto(video);
+                detailsCache.put(dto.getVideoId(), dto);
+                found.put(dto.getVideoId(), dto);
+            }
+        }
+
+        // Fusion dans l'ordre d'origine (rang de la recherche)
+        List<VideoDto> ordered = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            VideoDto dto = found.get(videoId);
+            if (dto != null) {
+                ordered.add(dto);
+            }
+        }
+        return new Details(ordered, degraded);
+    }
+
+    /**
+     * Exécute un appel à l'API après avoir réservé son coût auprès du limiteur de quota.
+     * Une erreur "quota épuisé" de YouTube bloque le reste de la journée côté limiteur.
+     */
+    private <T> T execute(AbstractGoogleClientRequest<T> request, int cost, Priority priority) throws IOException {
+        quotaLimiter.acquire(cost, priority);
+        try {
+            return request.execute();
+        } catch (GoogleJsonResponseException e) {
+            if (isQuotaError(e)) {
+                quotaLimiter.markExhausted();
+                throw new QuotaExceededException("YouTube reported quota exceeded", quotaLimiter.secondsUntilReset());
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isQuotaError(GoogleJsonResponseException e) {
+        GoogleJsonError details = e.getDetails();
+        return e.getStatusCode() == 403 && details != null && details.getErrors() != null
+                && details.getErrors().stream().anyMatch(error -> QUOTA_ERROR_REASONS.contains(error.getReason()));
     }
 
     // Méthode utilitaire pour mapper l'objet Video complet au DTO simplifié
-    private VideoDto mapToVideoDto(Video video) {
+    static VideoDto mapToVideoDto(Video video) {
         VideoDto dto = new VideoDto();
         dto.setVideoId(video.getId());
         
@@ -0,0 +1,50 @@
+package com.music.OneDrop.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Téléchargement de l'audio YouTube avec yt-dlp (extraction en WAV).
+ */
+@Component
+@ConditionalOnProperty(name = "onedrop.engine.downloader", havingValue = "yt-dlp", matchIfMissing = true)
+public class YtDlpDownloader implements AudioDownloader {
+
+    private final String executable;
+    private final long timeoutMinutes;
+    private final Executor supervisor;
+
+    public YtDlpDownloader(@Value("${onedrop.ytdlp.executable:}") String executable,
+                           @Value("${onedrop.ytdlp.timeout-minutes:20}") long timeoutMinutes,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.executable = ExternalCommand.resolveTool(executable, "yt-dlp");
+        this.timeoutMinutes = timeoutMinutes;
+        this.supervisor = ExternalCommand.supervisorExecutor(virtualThreads);
+    }
+
+    @Override
+    public void download(String videoId, Path targetWav) throws IOException, InterruptedException {
+        String youtubeUrl = "https://www.youtube.com/watch?v=" + videoId;
+
+        System.out.println("Début du téléchargement (WAV): " + videoId);
+        int exitCode = ExternalCommand.run(List.of(
+                executable,
+                "-f", "bestaudio",
+                "--extract-audio",
+                "--audio-format", "wav",
+                "--output", targetWav.toString(),
+                // Sans "--", un identifiant commençant par un tiret serait lu comme une option
+                "--", youtubeUrl
+        ), timeoutMinutes, supervisor);
+
+        if (exitCode != 0) {
+            throw new IOException("yt-dlp failed with exit code: " + exitCode);
+        }
+    }
+}
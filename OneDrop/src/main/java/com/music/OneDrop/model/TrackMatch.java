@@ -0,0 +1,87 @@
+package com.music.OneDrop.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * Correspondance persistante piste Spotify -> vidéo YouTube, établie lors d'un import d'album.
+ * Évite de refaire une recherche YouTube (100 unités de quota) pour une piste déjà résolue.
+ * Un videoId null signifie "aucune vidéo assez proche" : la recherche est retentée après un délai.
+ */
+@Entity
+public class TrackMatch {
+
+    @Id
+    private String spotifyTrackId;
+
+    private String videoId;
+    private String videoTitle;
+    private String duration; // Durée de la vidéo au format ISO 8601 (PT...S)
+    private double score; // Score de la correspondance (0 à 1), voir TrackMatcher
+    private String query; // Requête YouTube utilisée
+
+    private LocalDateTime matchedAt;
+
+    // --- Constructeur ---
+    public TrackMatch() {
+    }
+
+    // --- Getters et Setters ---
+
+    public String getSpotifyTrackId() {
+        return spotifyTrackId;
+    }
+
+    public void setSpotifyTrackId(String spotifyTrackId) {
+        this.spotifyTrackId = spotifyTrackId;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(String videoId) {
+        this.videoId = videoId;
+    }
+
+    public String getVideoTitle() {
+        return videoTitle;
+    }
+
+    public void setVideoTitle(String videoTitle) {
+        this.videoTitle = videoTitle;
+    }
+
+    public String getDuration() {
+        return duration;
+    }
+
+    public void setDuration(String duration) {
+        this.duration = duration;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public LocalDateTime getMatchedAt() {
+        return matchedAt;
+    }
+
+    public void setMatchedAt(LocalDateTime matchedAt) {
+        this.matchedAt = matchedAt;
+    }
+}
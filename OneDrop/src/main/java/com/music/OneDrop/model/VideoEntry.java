@@ -1,14 +1,22 @@
 package com.music.OneDrop.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 /**
  * Entité de base de données pour stocker les métadonnées des vidéos et l'état du traitement.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_video_content_hash", columnList = "contentHash"),
+        @Index(name = "idx_video_job_status", columnList = "jobStatus")
+})
 public class VideoEntry {
 
     @Id
@@ -25,6 +33,31 @@ public class VideoEntry {
     @Column(columnDefinition = "CLOB")
     private String stemsJson; 
 
+    // Empreinte du PCM source (déduplication des ré-uploads d'un même enregistrement)
+    private String contentHash;
+
+    // Si non null : les pistes sont partagées avec cette autre vidéo (même contenu audio)
+    private String stemsVideoId;
+
+    // --- File de traitement partagée (rôles api / worker, voir SeparationWorker) ---
+    // Colonnes en lecture seule pour l'entité : elles ne sont écrites que par les UPDATE conditionnels
+    // de VideoRepository, une sauvegarde d'entrée (souvent chargée plus tôt) ne peut donc pas écraser un bail.
+    // Modèle et état du dernier traitement confié aux workers (PENDING, DOWNLOADING, SEPARATING, COMPLETED, FAILED)
+    @Column(insertable = false, updatable = false)
+    private String jobModel;
+    @Column(insertable = false, updatable = false)
+    private String jobStatus;
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime jobQueuedAt;
+    // Nombre de prises en charge : un worker qui plante à chaque tentative ne bloque pas la file indéfiniment
+    @Column(insertable = false, updatable = false)
+    private Integer jobAttempts;
+    // Bail : le worker propriétaire le renouvelle tant qu'il travaille ; expiré, la tâche est reprise par un autre
+    @Column(insertable = false, updatable = false)
+    private String leaseOwner;
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime leaseExpiresAt;
+
     // --- Constructeur ---
     public VideoEntry() {
     }
@@ -71,5 +104,68 @@ public class VideoEntry {
         this.processedAt = processedAt;
     }
 
+    // Déjà du JSON : renvoyé tel quel au client (objet structuré, pas une chaîne échappée)
+    @JsonRawValue
+    public String getStemsJson() {
+        return stemsJson;
+    }
+
+    public void setStemsJson(String stemsJson) {
+        this.stemsJson = stemsJson;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getStemsVideoId() {
+        return stemsVideoId;
+    }
+
+    public void setStemsVideoId(String stemsVideoId) {
+        this.stemsVideoId = stemsVideoId;
+    }
+
+    @JsonIgnore
+    public String getJobModel() {
+        return jobModel;
+    }
+
+    @JsonIgnore
+    public String getJobStatus() {
+        return jobStatus;
+    }
+
+    @JsonIgnore
+    public LocalDateTime getJobQueuedAt() {
+        return jobQueuedAt;
+    }
+
+    @JsonIgnore
+    public Integer getJobAttempts() {
+        return jobAttempts;
+    }
+
+    @JsonIgnore
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    @JsonIgnore
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    /**
+     * Identifiant du dossier qui contient réellement les pistes (le sien, ou celui de la vidéo liée).
+     */
+    public String resolveStemsFolderId() {
+        return stemsVideoId != null ? stemsVideoId : videoId;
+    }
+
   
 }
@@ -0,0 +1,12 @@
+package com.music.OneDrop.repository;
+
+import com.music.OneDrop.model.TrackMatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Cache persistant des correspondances piste Spotify -> vidéo YouTube (clé : ID de piste Spotify).
+ */
+@Repository
+public interface TrackMatchRepository extends JpaRepository<TrackMatch, String> {
+}
@@ -2,9 +2,16 @@ package com.music.OneDrop.repository;
 
 
 import com.music.OneDrop.model.VideoEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,6 +30,120 @@ public interface VideoRepository extends JpaRepository<VideoEntry, String> {
      * Spring Data JPA génère automatiquement la requête SQL à partir du nom de la méthode.
      */
     List<VideoEntry> findAllByOrderByProcessedAtDesc();
-    
+
+    /**
+     * Vidéos ayant la même empreinte audio (déduplication du contenu source).
+     */
+    List<VideoEntry> findByContentHashAndStatus(String contentHash, String status);
+
+    /**
+     * Vidéos dont les pistes sont partagées avec la vidéo donnée.
+     */
+    List<VideoEntry> findByStemsVideoId(String stemsVideoId);
+
+    // --- File de traitement partagée entre le nœud API et les workers ---
+    // Toutes les écritures sont des UPDATE conditionnels : la base arbitre, une seule ligne modifiée = succès.
+    // Les dates (file, baux) viennent de l'horloge de la base : les nœuds n'ont ni le même fuseau ni la même heure.
+
+    /**
+     * Met un traitement en file (remet à zéro tentatives et bail d'un traitement précédent).
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.jobModel = :model, v.jobStatus = :pending, v.jobQueuedAt = local datetime,"
+            + " v.jobAttempts = 0, v.leaseOwner = null, v.leaseExpiresAt = null where v.videoId = :videoId")
+    int queueJob(@Param("videoId") String videoId, @Param("model") String model, @Param("pending") String pending);
+
+    /**
+     * Traitements à prendre : en file, ou dont le bail a expiré (worker arrêté ou planté), plus anciens d'abord.
+     */
+    @Query("select v.videoId from VideoEntry v where v.jobStatus in :active"
+            + " and (v.leaseOwner is null or v.leaseExpiresAt < local datetime) and v.jobAttempts < :maxAttempts"
+            + " order by v.jobQueuedAt")
+    List<String> findClaimableJobs(@Param("active") Collection<String> activeStatuses,
+                                   @Param("maxAttempts") int maxAttempts, Pageable page);
+
+    /**
+     * Prend un traitement : ne réussit (1) que si personne ne détient de bail valide à cet instant.
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.leaseOwner = :owner, v.leaseExpiresAt = local datetime + (:leaseSeconds) second,"
+            + " v.jobAttempts = v.jobAttempts + 1"
+            + " where v.videoId = :videoId and v.jobStatus in :active"
+            + " and (v.leaseOwner is null or v.leaseExpiresAt < local datetime) and v.jobAttempts < :maxAttempts")
+    int claimJob(@Param("videoId") String videoId, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds,
+                 @Param("active") Collection<String> activeStatuses, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Battement de cœur : prolonge le bail et publie l'étape en cours. 0 = bail perdu (repris par un autre worker).
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.leaseExpiresAt = local datetime + (:leaseSeconds) second, v.jobStatus = :status"
+            + " where v.videoId = :videoId and v.leaseOwner = :owner")
+    int renewLease(@Param("videoId") String videoId, @Param("owner") String owner,
+                   @Param("leaseSeconds") long leaseSeconds, @Param("status") String status);
+
+    /**
+     * Fin du traitement (COMPLETED ou FAILED) par le détenteur du bail.
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.jobStatus = :status, v.leaseOwner = null, v.leaseExpiresAt = null"
+            + " where v.videoId = :videoId and v.leaseOwner = :owner")
+    int releaseJob(@Param("videoId") String videoId, @Param("owner") String owner, @Param("status") String status);
+
+    /**
+     * Résultat d'un worker sur l'entrée (statut de la vidéo, date) : seulement s'il détient encore le bail.
+     * Un worker qui l'a perdu ne peut pas écraser le travail du nouveau détenteur.
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.status = :status, v.processedAt = :processedAt"
+            + " where v.videoId = :videoId and v.leaseOwner = :owner")
+    int finishLeasedJob(@Param("videoId") String videoId, @Param("owner") String owner, @Param("status") String status,
+                        @Param("processedAt") LocalDateTime processedAt);
+
+    /**
+     * Empreinte, lien de déduplication et analyse des pistes écrits par un worker, sous la même condition de bail.
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.contentHash = :contentHash, v.stemsVideoId = :stemsVideoId, v.stemsJson = :stemsJson"
+            + " where v.videoId = :videoId and v.leaseOwner = :owner")
+    int storeLeasedStems(@Param("videoId") String videoId, @Param("owner") String owner,
+                         @Param("contentHash") String contentHash, @Param("stemsVideoId") String stemsVideoId,
+                         @Param("stemsJson") String stemsJson);
+
+    /**
+     * Remise en file à l'arrêt d'un worker : le traitement interrompu n'est pas un échec de la vidéo,
+     * et la prise n'est pas comptée comme tentative.
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.jobStatus = :pending, v.leaseOwner = null, v.leaseExpiresAt = null,"
+            + " v.jobAttempts = v.jobAttempts - 1,"
+            + " v.status = case when v.status = :failed then :pending else v.status end"
+            + " where v.videoId = :videoId and v.leaseOwner = :owner")
+    int requeueJob(@Param("videoId") String videoId, @Param("owner") String owner, @Param("pending") String pending,
+                   @Param("failed") String failed);
+
+    /**
+     * Abandonne les traitements à court de tentatives, sans bail valide (expiré, ou relâché) :
+     * la vidéo passe en échec, sauf si elle était déjà terminée (modèle supplémentaire).
+     */
+    @Modifying
+    @Transactional
+    @Query("update VideoEntry v set v.jobStatus = :failed, v.leaseOwner = null, v.leaseExpiresAt = null,"
+            + " v.status = case when v.status = :completed then v.status else :failed end"
+            + " where v.jobStatus in :active and (v.leaseOwner is null or v.leaseExpiresAt < local datetime)"
+            + " and v.jobAttempts >= :maxAttempts")
+    int failExhaustedJobs(@Param("maxAttempts") int maxAttempts,
+                          @Param("active") Collection<String> activeStatuses, @Param("failed") String failed,
+                          @Param("completed") String completed);
+
+    List<VideoEntry> findByJobStatusIn(Collection<String> jobStatuses);
+
     // Vous pouvez ajouter d'autres méthodes de recherche ici si nécessaire (ex: findByStatus)
 }
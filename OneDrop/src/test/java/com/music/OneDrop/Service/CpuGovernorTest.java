@@ -0,0 +1,90 @@
+package com.music.OneDrop.Service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CpuGovernorTest {
+
+    // Bornes explicites : le résultat ne dépend pas du nombre de cœurs de la machine de test
+    private static CpuGovernor governor(int initialJobs, int minJobs, int maxJobs) {
+        return new CpuGovernor(0, initialJobs, minJobs, maxJobs, 1, true, 4, false, "");
+    }
+
+    private static int limit(CpuGovernor governor) {
+        return (int) governor.getStats().get("concurrentLimit");
+    }
+
+    @Test
+    void climbsWhileThroughputImproves() {
+        CpuGovernor governor = governor(2, 1, 4);
+        governor.adjustLimit(10);
+        assertEquals(3, limit(governor));
+        governor.adjustLimit(12);
+        assertEquals(4, limit(governor));
+    }
+
+    @Test
+    void stepsBackAndReversesWhenThroughputDrops() {
+        CpuGovernor governor = governor(2, 1, 4);
+        governor.adjustLimit(10);
+        assertEquals(3, limit(governor));
+
+        governor.adjustLimit(5);
+        assertEquals(2, limit(governor), "back to the previous limit");
+
+        governor.adjustLimit(10);
+        assertEquals(1, limit(governor), "then explores the other side");
+
+        governor.adjustLimit(4);
+        assertEquals(2, limit(governor), "and reverses again on the next drop");
+    }
+
+    @Test
+    void staysAtUpperBoundWhileItDoesAsWellAsItsNeighbour() {
+        CpuGovernor governor = governor(3, 1, 4);
+        governor.adjustLimit(12);
+        assertEquals(4, limit(governor));
+
+        governor.adjustLimit(13);
+        assertEquals(4, limit(governor));
+        governor.adjustLimit(12);
+        assertEquals(4, limit(governor));
+    }
+
+    @Test
+    void leavesUpperBoundWhenItFallsBehindItsNeighbour() {
+        CpuGovernor governor = governor(3, 1, 4);
+        governor.adjustLimit(12);
+        governor.adjustLimit(4);
+        assertEquals(3, limit(governor));
+    }
+
+    @Test
+    void neverLeavesConfiguredRange() {
+        CpuGovernor governor = governor(2, 2, 2);
+        for (double throughput : new double[] {10, 1, 20, 0.5}) {
+            governor.adjustLimit(throughput);
+            assertEquals(2, limit(governor));
+        }
+    }
+
+    @Test
+    void clampsInitialLimit() {
+        assertEquals(4, limit(governor(10, 1, 4)));
+        assertEquals(2, limit(governor(1, 2, 4)));
+    }
+
+    @Test
+    void parsesRangesAndSingleIds() {
+        assertArrayEquals(new int[] {0, 1, 2, 3, 8, 10, 11}, CpuGovernor.parseCpuList("0-3,8,10-11"));
+        assertArrayEquals(new int[] {5}, CpuGovernor.parseCpuList("5"));
+    }
+
+    @Test
+    void parseIgnoresBlankEntriesAndSpaces() {
+        assertArrayEquals(new int[] {}, CpuGovernor.parseCpuList(""));
+        assertArrayEquals(new int[] {0, 1, 4}, CpuGovernor.parseCpuList(" 0-1, 4 ,"));
+    }
+}
@@ -0,0 +1,220 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Service.TaskStatusManager.Status;
+import com.music.OneDrop.model.VideoEntry;
+import com.music.OneDrop.repository.VideoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deux workers sur une même base H2 en mode AUTO_SERVER (celui d'un déploiement api + workers) :
+ * prise unique, reprise d'un bail expiré, abandon après max-attempts, arrêt d'un traitement au bail perdu.
+ * Sans transaction de test : chaque UPDATE conditionnel est validé, comme entre deux nœuds.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SeparationWorkerTest {
+
+    private static final long LEASE_SECONDS = 1;
+
+    @DynamicPropertySource
+    static void sharedDatabase(DynamicPropertyRegistry registry) throws IOException {
+        String folder = Files.createTempDirectory("onedrop-workers").toString();
+        registry.add("spring.datasource.url", () -> "jdbc:h2:file:" + folder + "/db;AUTO_SERVER=TRUE");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Autowired
+    private VideoRepository videoRepository;
+
+    private final AudioProcessorService audioProcessorService = mock(AudioProcessorService.class);
+
+    @BeforeEach
+    void clearQueue() {
+        videoRepository.deleteAll();
+    }
+
+    private SeparationWorker worker(String id, int maxAttempts) {
+        return new SeparationWorker(audioProcessorService, videoRepository, new TaskStatusManager(),
+                "worker", id, 1, 1000, LEASE_SECONDS, maxAttempts);
+    }
+
+    private void queue(String videoId) {
+        VideoEntry entry = new VideoEntry();
+        entry.setVideoId(videoId);
+        entry.setVideoTitle(videoId);
+        entry.setStatus(Status.PENDING.name());
+        videoRepository.save(entry);
+        videoRepository.queueJob(videoId, StemModel.DEFAULT.getName(), Status.PENDING.name());
+    }
+
+    private VideoEntry entry(String videoId) {
+        return videoRepository.findById(videoId).orElseThrow();
+    }
+
+    private static void waitForLeaseExpiry() throws InterruptedException {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(LEASE_SECONDS) + 500);
+    }
+
+    @Test
+    void onlyOneClaimSucceedsPerJob() throws Exception {
+        List<String> videoIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            videoIds.add("video" + i);
+            queue("video" + i);
+        }
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService nodes = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (String owner : List.of("w1", "w2")) {
+                results.add(nodes.submit(() -> {
+                    int[] claimed = new int[videoIds.size()];
+                    for (int i = 0; i < videoIds.size(); i++) {
+                        barrier.await(5, TimeUnit.SECONDS); // Les deux nœuds tentent la même vidéo au même moment
+                        claimed[i] = videoRepository.claimJob(videoIds.get(i), owner, 60,
+                                SeparationJobQueue.ACTIVE_STATUSES, 3);
+                    }
+                    return claimed;
+                }));
+            }
+            int[] first = results.get(0).get(30, TimeUnit.SECONDS);
+            int[] second = results.get(1).get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < videoIds.size(); i++) {
+                assertEquals(1, first[i] + second[i], "exactly one claim of " + videoIds.get(i));
+                assertEquals(first[i] == 1 ? "w1" : "w2", entry(videoIds.get(i)).getLeaseOwner());
+                assertEquals(1, entry(videoIds.get(i)).getJobAttempts());
+            }
+        } finally {
+            nodes.shutdownNow();
+        }
+    }
+
+    @Test
+    void workersNeverClaimTheSameJobTwice() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            queue("video" + i);
+        }
+        SeparationWorker first = worker("w1", 3);
+        SeparationWorker second = worker("w2", 3);
+        ExecutorService nodes = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (SeparationWorker worker : List.of(first, second)) {
+                results.add(nodes.submit(() -> {
+                    List<String> claimed = new ArrayList<>();
+                    for (Optional<String> next = worker.claimNext(); next.isPresent(); next = worker.claimNext()) {
+                        claimed.add(next.get());
+                    }
+                    return claimed;
+                }));
+            }
+            List<String> all = new ArrayList<>(results.get(0).get(30, TimeUnit.SECONDS));
+            all.addAll(results.get(1).get(30, TimeUnit.SECONDS));
+            assertEquals(10, all.size());
+            assertEquals(10, all.stream().distinct().count());
+        } finally {
+            nodes.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedByAnotherWorker() throws Exception {
+        queue("video");
+        SeparationWorker first = worker("w1", 3);
+        SeparationWorker second = worker("w2", 3);
+
+        assertEquals(Optional.of("video"), first.claimNext());
+        assertEquals(Optional.empty(), second.claimNext(), "lease still valid");
+
+        waitForLeaseExpiry();
+        assertEquals(Optional.of("video"), second.claimNext());
+        assertEquals("w2", entry("video").getLeaseOwner());
+        assertEquals(2, entry("video").getJobAttempts());
+
+        // L'ancien détenteur ne peut plus écrire son résultat
+        assertEquals(0, videoRepository.finishLeasedJob("video", "w1", Status.COMPLETED.name(), null));
+        assertEquals(0, videoRepository.releaseJob("video", "w1", Status.COMPLETED.name()));
+        assertEquals(Status.PENDING.name(), entry("video").getStatus());
+    }
+
+    @Test
+    void jobFailsOnceMaxAttemptsAreSpent() throws Exception {
+        queue("video");
+        SeparationWorker first = worker("w1", 2);
+        SeparationWorker second = worker("w2", 2);
+
+        assertEquals(Optional.of("video"), first.claimNext());
+        waitForLeaseExpiry();
+        assertEquals(Optional.of("video"), second.claimNext());
+        waitForLeaseExpiry();
+
+        assertEquals(Optional.empty(), first.claimNext());
+        VideoEntry failed = entry("video");
+        assertEquals(Status.FAILED.name(), failed.getJobStatus());
+        assertEquals(Status.FAILED.name(), failed.getStatus());
+        assertEquals(null, failed.getLeaseOwner());
+    }
+
+    @Test
+    void lostLeaseInterruptsTheRunningJob() throws Exception {
+        queue("video");
+        SeparationWorker first = worker("w1", 3);
+        SeparationWorker second = worker("w2", 3);
+        CountDownLatch running = new CountDownLatch(1);
+        when(audioProcessorService.runJob(eq("video"), any(), eq("w1"))).thenAnswer(invocation -> {
+            running.countDown();
+            try {
+                Thread.sleep(30_000);
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+
+        assertEquals(Optional.of("video"), first.claimNext());
+        Thread job = new Thread(() -> first.runClaimed("video"));
+        job.start();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // Le battement de cœur de w1 est en retard : le bail expire et w2 reprend le traitement
+        waitForLeaseExpiry();
+        assertEquals(Optional.of("video"), second.claimNext());
+
+        first.renewLeases();
+        job.join(5_000);
+        assertFalse(job.isAlive(), "job interrupted once its lease is lost");
+        VideoEntry entry = entry("video");
+        assertEquals("w2", entry.getLeaseOwner());
+        assertEquals(Status.PENDING.name(), entry.getJobStatus());
+        assertEquals(Status.PENDING.name(), entry.getStatus());
+    }
+}
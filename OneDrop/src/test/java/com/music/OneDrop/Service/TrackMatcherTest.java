@@ -0,0 +1,79 @@
+package com.music.OneDrop.Service;
+
+import com.music.OneDrop.Dto.VideoDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrackMatcherTest {
+
+    private static final long HALO_MS = 261_000; // 4:21
+
+    private static VideoDto video(String title, String channel, String duration) {
+        VideoDto video = new VideoDto();
+        video.setTitle(title);
+        video.setChannelTitle(channel);
+        video.setDuration(duration);
+        return video;
+    }
+
+    private static double score(String trackName, VideoDto video) {
+        return TrackMatcher.score(trackName, List.of("Beyoncé"), HALO_MS, video);
+    }
+
+    @Test
+    void officialVideoWithSameDurationScoresFull() {
+        assertEquals(1.0, score("Halo", video("Beyoncé - Halo (Official Video)", "BeyonceVEVO", "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void artistFoundInChannelName() {
+        assertEquals(1.0, score("Halo", video("Halo (Official Video)", "Beyoncé", "PT4M21S")), 1e-9);
+        assertEquals(0.8, score("Halo", video("Halo (Official Video)", "Some Channel", "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void durationWithinToleranceThenFallsOff() {
+        assertEquals(1.0, score("Halo", video("Beyoncé - Halo", null, "PT4M24S")), 1e-9);
+        // 20 s d'écart : 17 s au-delà de la tolérance, sur 30 s de décroissance
+        assertEquals(0.45 * (13 / 30.0) + 0.35 + 0.20, score("Halo", video("Beyoncé - Halo", null, "PT4M41S")), 1e-9);
+        assertEquals(0.55, score("Halo", video("Beyoncé - Halo", null, "PT10M")), 1e-9);
+    }
+
+    @Test
+    void unknownDurationIsNeutral() {
+        assertEquals(0.775, score("Halo", video("Beyoncé - Halo", null, null)), 1e-9);
+        assertEquals(0.775, score("Halo", video("Beyoncé - Halo", null, "4:21")), 1e-9);
+        assertEquals(0.775, TrackMatcher.score("Halo", List.of("Beyoncé"), 0, video("Beyoncé - Halo", null, "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void partialTitleMatch() {
+        assertEquals(0.45 + 0.35 / 2 + 0.20, score("Halo Reprise", video("Beyoncé - Halo", null, "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void alternateVersionIsPenalised() {
+        assertEquals(0.5, score("Halo", video("Beyoncé - Halo (Live)", null, "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void alternateVersionIsNotPenalisedWhenTheTrackIsOne() {
+        assertEquals(1.0, score("Halo - Live", video("Beyoncé - Halo (Live)", null, "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void scoreIsClampedToZero() {
+        assertEquals(0.0, score("Halo", video("Beyoncé - Halo live cover karaoke", null, "PT4M21S")), 1e-9);
+    }
+
+    @Test
+    void wordsAreNormalised() {
+        assertEquals(Set.of("beyonce", "halo", "official", "video"), TrackMatcher.words("Beyoncé - Halo (Official Video)"));
+        assertEquals(Set.of(), TrackMatcher.words(" - "));
+        assertEquals(Set.of(), TrackMatcher.words(null));
+    }
+}